@@ -0,0 +1,70 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.MemberRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * searchPageComplex latency distribution (p50/p99 from SampleTime) with the count run after
+ * the content query versus concurrently on the count executor. The count cache is disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConcurrentCountBenchmark {
+
+    @Param({"500000"})
+    private int rows;
+
+    @Param({"false", "true"})
+    private boolean concurrentCount;
+
+    private ConfigurableApplicationContext context;
+    private MemberRepository memberRepository;
+    private final MemberSearchCondition condition = new MemberSearchCondition();
+    private final PageRequest middlePage = PageRequest.of(50, 20);
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "member.search.concurrent-count=" + concurrentCount,
+                "member.count-cache.ttl=PT0S",
+                "member.count-cache.max-size=0");
+        BenchmarkApplication.seed(context, rows, 1000);
+        memberRepository = context.getBean(MemberRepository.class);
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(80);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, middlePage);
+    }
+}
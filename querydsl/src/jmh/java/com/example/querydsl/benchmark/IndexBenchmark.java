@@ -0,0 +1,109 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.MemberRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of searchPageSimple (count + first page) for each MemberSearchCondition predicate,
+ * with and without the indexes declared on Member and Team. H2 backs every foreign key with an index
+ * of its own, so the unindexed baseline also drops the member.team_id foreign key; otherwise the team
+ * filters would still be served by that index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class IndexBenchmark {
+
+    private static final String[] INDEXES = {"idx_member_username_id", "idx_member_age", "idx_member_team_age", "idx_team_name"};
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private ConfigurableApplicationContext context;
+    private MemberRepository memberRepository;
+    private final PageRequest firstPage = PageRequest.of(0, 20);
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, rows, 1000);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        if (!indexed) {
+            for (String index : INDEXES) {
+                jdbcTemplate.execute("drop index if exists " + index);
+            }
+            for (String foreignKey : jdbcTemplate.queryForList("select constraint_name from information_schema.constraints"
+                    + " where table_name = 'MEMBER' and constraint_type = 'REFERENTIAL'", String.class)) {
+                jdbcTemplate.execute("alter table member drop constraint " + foreignKey);
+            }
+            Integer teamIdIndexes = jdbcTemplate.queryForObject("select count(*) from information_schema.indexes"
+                    + " where table_name = 'MEMBER' and column_name = 'TEAM_ID'", Integer.class);
+            if (teamIdIndexes != 0) {
+                throw new IllegalStateException("member.team_id is still indexed in the unindexed baseline");
+            }
+        }
+        jdbcTemplate.execute("analyze");
+        memberRepository = context.getBean(MemberRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> usernameEq() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member 500000");
+        return memberRepository.searchPageSimple(condition, firstPage);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> ageRange() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(31);
+        return memberRepository.searchPageSimple(condition, firstPage);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> teamName() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team500");
+        return memberRepository.searchPageSimple(condition, firstPage);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> teamNameAndAgeRange() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team500");
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(60);
+        return memberRepository.searchPageSimple(condition, firstPage);
+    }
+}
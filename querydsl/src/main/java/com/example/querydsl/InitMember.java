@@ -1,48 +1,29 @@
 package com.example.querydsl;
 
-import com.example.querydsl.entity.Member;
-import com.example.querydsl.entity.Team;
+import com.example.querydsl.seed.MemberSeeder;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
 
 @Profile("local")
 @Component
 @RequiredArgsConstructor
 public class InitMember {
 
-    private final InitMemeberService initMemeberService;
+    private final MemberSeeder memberSeeder;
 
-    @PostConstruct
-    public void init() {
-        initMemeberService.init();
-    }
-
-    @Service
-    static class InitMemeberService {
-        @PersistenceContext
-        private EntityManager em;
+    @Value("${seed.members:100}")
+    private long members;
 
-        @Transactional
-        public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member " + i, i, selectedTeam));
-            }
-        }
+    @Value("${seed.teams:2}")
+    private int teams;
 
+    @PostConstruct
+    public void init() {
+        memberSeeder.seed(members, teams);
     }
 
-
 }
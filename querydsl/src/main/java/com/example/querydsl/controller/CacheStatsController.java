@@ -0,0 +1,80 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.dto.CacheRegionStats;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequiredArgsConstructor
+public class CacheStatsController {
+
+    private static final String[] QUERY_REGIONS = {"team-queries", "default-query-results-region"};
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Hit/miss/put counters come from Hibernate statistics, evictions from the JCache statistics MBean of the region.
+     * Not found unless hibernate.generate_statistics is on, rather than all-zero counters.
+     */
+    @GetMapping("/cache/stats")
+    public List<CacheRegionStats> cacheStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "hibernate statistics are disabled");
+        }
+        Set<String> regions = new LinkedHashSet<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            regions.add(region);
+        }
+        for (String region : QUERY_REGIONS) {
+            regions.add(region);
+        }
+
+        List<CacheRegionStats> result = new ArrayList<>();
+        for (String region : regions) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics == null) {
+                continue;
+            }
+            result.add(new CacheRegionStats(
+                    region,
+                    regionStatistics.getHitCount(),
+                    regionStatistics.getMissCount(),
+                    regionStatistics.getPutCount(),
+                    regionStatistics.getElementCountInMemory(),
+                    evictionCount(region)
+            ));
+        }
+        return result;
+    }
+
+    private Long evictionCount(String region) {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            Set<ObjectName> names = mBeanServer.queryNames(
+                    new ObjectName("javax.cache:type=CacheStatistics,Cache=" + region + ",*"), null);
+            for (ObjectName name : names) {
+                return (Long) mBeanServer.getAttribute(name, "CacheEvictions");
+            }
+        } catch (JMException e) {
+            return null;
+        }
+        return null;
+    }
+}
@@ -1,28 +1,57 @@
 package com.example.querydsl.controller;
 
+import com.example.querydsl.dto.InvalidKeysetCursorException;
+import com.example.querydsl.dto.KeysetSlice;
+import com.example.querydsl.dto.MemberKeysetSort;
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
 import com.example.querydsl.entity.Member;
+import com.example.querydsl.monitoring.SqlRequestContext;
 import com.example.querydsl.repository.MemberJpaRepository;
 import com.example.querydsl.repository.MemberRepository;
+import com.example.querydsl.repository.support.SearchCancellation;
+import com.example.querydsl.service.MemberSearchService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.Future;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_KEYSET_SIZE = 2000;
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberSearchService memberSearchService;
+    private final ObjectMapper objectMapper;
+    private final AsyncTaskExecutor taskExecutor;
+
+    @Value("${member.stream.fetch-size:500}")
+    private int streamFetchSize;
 
     @GetMapping("/v0/members")
     public Page<Member> searchMemberV1(Pageable pageable) {
-        return memberRepository.findAll(pageable);
+        return memberRepository.findAllWithTeamBy(pageable);
     }
 
     @GetMapping("/v1/members")
@@ -30,13 +59,87 @@ public class MemberController {
         return memberJpaRepository.searchByBuilder(condition);
     }
 
+    @GetMapping(value = "/v1/members/stream", produces = "application/x-ndjson")
+    public void streamMemberV1(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        ObjectWriter writer = objectMapper.writerFor(MemberTeamDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            memberJpaRepository.streamByBuilder(condition, streamFetchSize, dto -> {
+                try {
+                    writer.writeValue(generator, dto);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * estimateTotal=true answers with an approximate total where counting would be expensive;
+     * the response's totalEstimated tells whether it was.
+     */
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition, pageable);
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(defaultValue = "false") boolean estimateTotal) {
+        if (estimateTotal) {
+            return memberSearchService.searchPageEstimated(condition, pageable);
+        }
+        return memberSearchService.searchPageSimple(condition, pageable);
     }
 
     @GetMapping("/v3/members")
     public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+        return memberSearchService.searchPageComplex(condition, pageable);
+    }
+
+    /**
+     * /v3/members served off the request thread. An async timeout, or an error the container reports on the
+     * async request, cancels the search's content and count statements and interrupts it. A client disconnect
+     * is usually not reported until the response is written, so it does not stop a running search.
+     * Not coalesced, so one caller's cancellation never fails another's.
+     * The search runs with the request's SQL stats bound, so its statements are still attributed to this request.
+     */
+    @GetMapping("/v3/members/async")
+    public DeferredResult<Page<MemberTeamDto>> searchMemberV3Async(MemberSearchCondition condition, Pageable pageable) {
+        DeferredResult<Page<MemberTeamDto>> result = new DeferredResult<>();
+        SearchCancellation cancellation = new SearchCancellation();
+        Future<?> search = taskExecutor.submit(SqlRequestContext.propagate(() -> {
+            try {
+                result.setResult(memberRepository.searchPageComplex(condition, pageable, cancellation));
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+            return null;
+        }));
+        Runnable cancel = () -> {
+            cancellation.cancel();
+            search.cancel(true);
+        };
+        result.onError(e -> cancel.run());
+        result.onTimeout(cancel);
+        return result;
+    }
+
+    @GetMapping("/v4/members")
+    public KeysetSlice<MemberTeamDto> searchMemberV4(MemberSearchCondition condition,
+                                                     @RequestParam(defaultValue = "ID") MemberKeysetSort sort,
+                                                     @RequestParam(required = false) String after,
+                                                     @RequestParam(defaultValue = "20") int size) {
+        int keysetSize = Math.max(1, Math.min(size, MAX_KEYSET_SIZE));
+        return memberRepository.searchKeyset(condition, sort, after, keysetSize);
+    }
+
+    @ExceptionHandler(InvalidKeysetCursorException.class)
+    public ResponseEntity<String> invalidKeysetCursor(InvalidKeysetCursorException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @GetMapping("/v5/members")
+    public Slice<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageable) {
+        return memberSearchService.searchSlice(condition, pageable);
     }
 }
@@ -0,0 +1,48 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.dto.MemberImportResult;
+import com.example.querydsl.service.MemberImportException;
+import com.example.querydsl.service.MemberImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the request body as it arrives; a multi-gigabyte upload is never buffered.
+ * A malformed line answers 400 with the counts of what was committed before it and the error.
+ */
+@RestController
+@RequiredArgsConstructor
+public class MemberImportController {
+
+    private final MemberImportService memberImportService;
+
+    @PostMapping(value = "/members/import", consumes = "text/csv")
+    public ResponseEntity<MemberImportResult> importCsv(HttpServletRequest request) throws IOException {
+        try (BufferedReader reader = bodyReader(request)) {
+            return ResponseEntity.ok(memberImportService.importCsv(reader));
+        } catch (MemberImportException e) {
+            return ResponseEntity.badRequest().body(e.getCommitted());
+        }
+    }
+
+    @PostMapping(value = "/members/import", consumes = "application/x-ndjson")
+    public ResponseEntity<MemberImportResult> importNdjson(HttpServletRequest request) throws IOException {
+        try (BufferedReader reader = bodyReader(request)) {
+            return ResponseEntity.ok(memberImportService.importNdjson(reader));
+        } catch (MemberImportException e) {
+            return ResponseEntity.badRequest().body(e.getCommitted());
+        }
+    }
+
+    private static BufferedReader bodyReader(HttpServletRequest request) throws IOException {
+        return new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.dto.TeamStats;
+import com.example.querydsl.stats.TeamStatsRollup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamStatsController {
+
+    private final TeamStatsRollup teamStatsRollup;
+
+    @GetMapping("/teams/stats")
+    public List<TeamStats> teamStats() {
+        return teamStatsRollup.snapshot();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class BulkProgress {
+
+    private final int chunks;
+    private final long rows;
+    private final Long lastId;
+
+    public BulkProgress(int chunks, long rows, Long lastId) {
+        this.chunks = chunks;
+        this.rows = rows;
+        this.lastId = lastId;
+    }
+}
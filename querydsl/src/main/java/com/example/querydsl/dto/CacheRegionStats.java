@@ -0,0 +1,22 @@
+package com.example.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class CacheRegionStats {
+    private String region;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long elementCountInMemory;
+    private Long evictionCount;
+
+    public CacheRegionStats(String region, long hitCount, long missCount, long putCount, long elementCountInMemory, Long evictionCount) {
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.elementCountInMemory = elementCountInMemory;
+        this.evictionCount = evictionCount;
+    }
+}
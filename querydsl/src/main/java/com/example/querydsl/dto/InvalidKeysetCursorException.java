@@ -0,0 +1,11 @@
+package com.example.querydsl.dto;
+
+/**
+ * An "after" token that does not decode to a {@link MemberKeysetCursor}: tampered, truncated or from another format.
+ */
+public class InvalidKeysetCursorException extends IllegalArgumentException {
+
+    public InvalidKeysetCursorException(String token, Throwable cause) {
+        super("invalid keyset cursor: " + token, cause);
+    }
+}
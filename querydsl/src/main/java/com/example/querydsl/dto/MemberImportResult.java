@@ -0,0 +1,28 @@
+package com.example.querydsl.dto;
+
+import lombok.Getter;
+
+@Getter
+public class MemberImportResult {
+
+    private final long members;
+    private final int teamsCreated;
+    private final long elapsedMillis;
+    private final long rowsPerSecond;
+    /**
+     * Why the import stopped early, or null when the whole body was imported.
+     */
+    private final String error;
+
+    public MemberImportResult(long members, int teamsCreated, long elapsedMillis) {
+        this(members, teamsCreated, elapsedMillis, null);
+    }
+
+    public MemberImportResult(long members, int teamsCreated, long elapsedMillis, String error) {
+        this.members = members;
+        this.teamsCreated = teamsCreated;
+        this.elapsedMillis = elapsedMillis;
+        this.rowsPerSecond = members * 1000 / Math.max(1, elapsedMillis);
+        this.error = error;
+    }
+}
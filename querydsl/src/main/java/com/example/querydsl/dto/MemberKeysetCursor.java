@@ -0,0 +1,59 @@
+package com.example.querydsl.dto;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque "after (sortKey, id)" position of a keyset page, handed to clients as a URL-safe token.
+ * A null key is a position among the members without a username, which the username keyset orders last.
+ */
+@Getter
+public class MemberKeysetCursor {
+
+    private final MemberKeysetSort sort;
+    private final String key;
+    private final Long id;
+
+    public MemberKeysetCursor(MemberKeysetSort sort, String key, Long id) {
+        this.sort = sort;
+        this.key = key;
+        this.id = id;
+    }
+
+    public static MemberKeysetCursor of(MemberKeysetSort sort, MemberTeamDto last) {
+        switch (sort) {
+            case AGE:
+                return new MemberKeysetCursor(sort, String.valueOf(last.getAge()), last.getMemberId());
+            case USERNAME:
+                return new MemberKeysetCursor(sort, last.getUsername(), last.getMemberId());
+            default:
+                return new MemberKeysetCursor(sort, "", last.getMemberId());
+        }
+    }
+
+    public String encode() {
+        String raw = key == null ? sort.name() + ":" + id : sort.name() + ":" + id + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberKeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            MemberKeysetSort sort = MemberKeysetSort.valueOf(parts[0]);
+            Long id = Long.valueOf(parts[1]);
+            String key = parts.length > 2 ? parts[2] : null;
+            if (key == null && sort != MemberKeysetSort.USERNAME) {
+                throw new IllegalArgumentException("missing sort key");
+            }
+            if (sort == MemberKeysetSort.AGE) {
+                Integer.parseInt(key);
+            }
+            return new MemberKeysetCursor(sort, key, id);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new InvalidKeysetCursorException(token, e);
+        }
+    }
+}
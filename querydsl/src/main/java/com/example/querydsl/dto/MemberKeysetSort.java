@@ -0,0 +1,7 @@
+package com.example.querydsl.dto;
+
+public enum MemberKeysetSort {
+    ID,
+    AGE,
+    USERNAME
+}
@@ -0,0 +1,25 @@
+package com.example.querydsl.dto;
+
+import lombok.Getter;
+
+@Getter
+public class TeamStats {
+
+    private final Long teamId;
+    private final String teamName;
+    private final long memberCount;
+    private final long ageSum;
+    private final Double ageAvg;
+    private final Integer ageMin;
+    private final Integer ageMax;
+
+    public TeamStats(Long teamId, String teamName, long memberCount, long ageSum, Integer ageMin, Integer ageMax) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.ageAvg = memberCount > 0 ? (double) ageSum / memberCount : null;
+        this.ageMin = ageMin;
+        this.ageMax = ageMax;
+    }
+}
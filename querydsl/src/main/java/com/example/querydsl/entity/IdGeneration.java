@@ -0,0 +1,15 @@
+package com.example.querydsl.entity;
+
+/**
+ * Member and Team ids come from one database sequence through pooled-lo generators
+ * (hibernate.id.optimizer.pooled.preferred): the sequence steps by ALLOCATION_SIZE and each value v
+ * reserves the ids [v, v + ALLOCATION_SIZE). MemberSeeder reserves its ids the same way.
+ */
+public final class IdGeneration {
+
+    public static final String SEQUENCE = "hibernate_sequence";
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGeneration() {
+    }
+}
@@ -5,6 +5,11 @@ import lombok.*;
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username_id", columnList = "username, id"),
+        @Index(name = "idx_member_age", columnList = "age"),
+        @Index(name = "idx_member_team_age", columnList = "team_id, age")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -12,7 +17,9 @@ import javax.persistence.*;
 public class Member {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_id")
+    @SequenceGenerator(name = "member_id", sequenceName = IdGeneration.SEQUENCE,
+            allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     private String username;
@@ -1,15 +1,20 @@
 package com.example.querydsl.entity;
 
 import lombok.*;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 
+/**
+ * Ids are assigned, so Spring Data cannot tell a new instance from a detached one by its id;
+ * isNew lets save/saveAll persist new instances directly instead of merging (select + insert).
+ */
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @IdClass(TestId.class)
-public class TestEntity {
+public class TestEntity implements Persistable<TestId> {
 
     @Id
     @ManyToOne(fetch = FetchType.LAZY)
@@ -19,8 +24,29 @@ public class TestEntity {
     @Id
     private Long testId;
 
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newEntity = true;
+
     public TestEntity(Member member, Long testId) {
         this.member = member;
         this.testId = testId;
     }
+
+    @Override
+    public TestId getId() {
+        return new TestId(member != null ? member.getId() : null, testId);
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
 }
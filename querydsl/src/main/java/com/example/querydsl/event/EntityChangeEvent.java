@@ -0,0 +1,55 @@
+package com.example.querydsl.event;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Committed insert/update/delete of a single entity, published after the owning transaction committed.
+ * state is the new state (null for DELETE), oldState the previous one (null for INSERT).
+ */
+@Getter
+public class EntityChangeEvent {
+
+    private final EntityChangeType type;
+    private final Class<?> entityType;
+    private final Object id;
+    private final Object entity;
+    private final String[] propertyNames;
+    private final Object[] state;
+    private final Object[] oldState;
+
+    public EntityChangeEvent(EntityChangeType type, Class<?> entityType, Object id, Object entity,
+                             String[] propertyNames, Object[] state, Object[] oldState) {
+        this.type = type;
+        this.entityType = entityType;
+        this.id = id;
+        this.entity = entity;
+        this.propertyNames = propertyNames;
+        this.state = state;
+        this.oldState = oldState;
+    }
+
+    public boolean isFor(Class<?> type) {
+        return type.isAssignableFrom(entityType);
+    }
+
+    public Object getValue(String property) {
+        return valueOf(state, property);
+    }
+
+    public Object getOldValue(String property) {
+        return valueOf(oldState, property);
+    }
+
+    private Object valueOf(Object[] values, String property) {
+        if (values == null) {
+            return null;
+        }
+        int index = Arrays.asList(propertyNames).indexOf(property);
+        if (index < 0) {
+            throw new IllegalArgumentException("unknown property " + property + " of " + entityType.getSimpleName());
+        }
+        return values[index];
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.querydsl.event;
+
+public enum EntityChangeType {
+    INSERT,
+    UPDATE,
+    DELETE
+}
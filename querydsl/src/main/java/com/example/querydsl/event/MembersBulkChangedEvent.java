@@ -0,0 +1,20 @@
+package com.example.querydsl.event;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Committed JPQL bulk update/delete of members, which Hibernate entity events never see.
+ */
+@Getter
+public class MembersBulkChangedEvent {
+
+    private final EntityChangeType type;
+    private final List<Long> memberIds;
+
+    public MembersBulkChangedEvent(EntityChangeType type, List<Long> memberIds) {
+        this.type = type;
+        this.memberIds = memberIds;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.querydsl.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Endpoint(id = "slowqueries")
+@RequiredArgsConstructor
+public class SlowQueryEndpoint {
+
+    private final SlowQuerySampler slowQuerySampler;
+
+    @ReadOperation
+    public List<SlowQuerySample> slowQueries() {
+        return slowQuerySampler.samples();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.querydsl.monitoring;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Parameterized SQL only: bound values can be personal data and the samples are served over actuator.
+ */
+@Getter
+public class SlowQuerySample {
+
+    private final Instant capturedAt;
+    private final String source;
+    private final long elapsedMillis;
+    private final String sql;
+    private final String plan;
+
+    public SlowQuerySample(Instant capturedAt, String source, long elapsedMillis, String sql, String plan) {
+        this.capturedAt = capturedAt;
+        this.source = source;
+        this.elapsedMillis = elapsedMillis;
+        this.sql = sql;
+        this.plan = plan;
+    }
+}
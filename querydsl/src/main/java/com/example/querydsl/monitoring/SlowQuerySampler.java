@@ -0,0 +1,183 @@
+package com.example.querydsl.monitoring;
+
+import com.example.querydsl.repository.MemberJpaRepository;
+import com.example.querydsl.repository.impl.MemberRepositoryImpl;
+import com.example.querydsl.repository.support.ConcurrentCountExecutor;
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Samples repository queries slower than the threshold and captures their H2 EXPLAIN plan on a
+ * background thread. The plan is explained from the statement's own SQL with its bound parameters
+ * re-bound, so filter values never become SQL text, and the query itself is not run again.
+ * Samples keep the parameterized SQL only, never the bound values.
+ * Only the last {@code capacity} samples are kept; samples arriving while the explain queue is full
+ * are dropped rather than slowing down requests.
+ */
+@Slf4j
+@Component
+public class SlowQuerySampler extends SimpleJdbcEventListener {
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final String[] SOURCES = {MemberJpaRepository.class.getName(), MemberRepositoryImpl.class.getName(),
+            ConcurrentCountExecutor.class.getName()};
+
+    private final DataSource dataSource;
+    private final long thresholdNanos;
+    private final int capacity;
+    private final Deque<SlowQuerySample> samples;
+    private final ThreadPoolExecutor explainExecutor;
+    private final ThreadLocal<BoundParameters> boundParameters = ThreadLocal.withInitial(BoundParameters::new);
+
+    public SlowQuerySampler(@Lazy DataSource dataSource,
+                            @Value("${sql.slow-query.threshold:PT0.2S}") Duration threshold,
+                            @Value("${sql.slow-query.capacity:50}") int capacity) {
+        this.dataSource = dataSource;
+        this.thresholdNanos = threshold.toNanos();
+        this.capacity = capacity;
+        this.samples = new ArrayDeque<>(capacity);
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    public void onAfterPreparedStatementSet(PreparedStatementInformation statementInformation, int parameterIndex,
+                                            Object value, SQLException e) {
+        super.onAfterPreparedStatementSet(statementInformation, parameterIndex, value, e);
+        boundParameters.get().set(statementInformation, parameterIndex, value);
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        Object[] parameters = boundParameters.get().take(statementInformation);
+        if (e != null || timeElapsedNanos < thresholdNanos) {
+            return;
+        }
+        String sql = COMMENT.matcher(statementInformation.getSql()).replaceAll("").trim();
+        if (!sql.regionMatches(true, 0, "select", 0, "select".length())) {
+            return;
+        }
+        String source = repositorySource();
+        if (source == null) {
+            return;
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos);
+        Instant capturedAt = Instant.now();
+        explainExecutor.execute(() -> add(new SlowQuerySample(capturedAt, source, elapsedMillis, sql,
+                explain(sql, parameters))));
+    }
+
+    public List<SlowQuerySample> samples() {
+        synchronized (samples) {
+            return new ArrayList<>(samples);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        explainExecutor.shutdownNow();
+    }
+
+    private void add(SlowQuerySample sample) {
+        synchronized (samples) {
+            if (samples.size() == capacity) {
+                samples.removeFirst();
+            }
+            samples.addLast(sample);
+        }
+    }
+
+    private String explain(String sql, Object[] parameters) {
+        if (parameters == null) {
+            return "explain skipped: bound parameters not captured";
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+                return plan.toString();
+            }
+        } catch (SQLException e) {
+            log.debug("explain failed for {}", sql, e);
+            return "explain failed: " + e.getMessage();
+        }
+    }
+
+    /**
+     * The first repository frame on the calling stack, e.g. MemberRepositoryImpl.searchPageComplex;
+     * counts run on the member-count pool show up as ConcurrentCountExecutor.count.
+     * Only computed for statements that already crossed the threshold.
+     */
+    private static String repositorySource() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            for (String source : SOURCES) {
+                if (element.getClassName().startsWith(source)) {
+                    return source.substring(source.lastIndexOf('.') + 1) + "." + element.getMethodName();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Values set on the prepared statement this thread is parameterizing; taken (and cleared) by its execution.
+     */
+    private static class BoundParameters {
+
+        private StatementInformation statement;
+        private final Map<Integer, Object> values = new TreeMap<>();
+
+        private void set(StatementInformation statement, int parameterIndex, Object value) {
+            if (this.statement != statement) {
+                this.statement = statement;
+                values.clear();
+            }
+            values.put(parameterIndex, value);
+        }
+
+        /**
+         * Parameters in index order, or null when another statement was parameterized here in between.
+         */
+        private Object[] take(StatementInformation statement) {
+            Object[] parameters = null;
+            if (this.statement == null) {
+                parameters = new Object[0];
+            } else if (this.statement == statement) {
+                parameters = values.values().toArray();
+            }
+            this.statement = null;
+            values.clear();
+            return parameters;
+        }
+    }
+}
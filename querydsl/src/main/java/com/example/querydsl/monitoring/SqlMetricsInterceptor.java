@@ -0,0 +1,114 @@
+package com.example.querydsl.monitoring;
+
+import com.example.querydsl.controller.MemberController;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports statement count, JDBC time and fetched rows per MemberController request,
+ * and flags requests that run the same statement shape more than repeat-threshold times (N+1).
+ */
+@Slf4j
+@Component
+public class SqlMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ASYNC_STATS = SqlMetricsInterceptor.class.getName() + ".ASYNC_STATS";
+
+    private final MeterRegistry meterRegistry;
+    private final int repeatThreshold;
+
+    public SqlMetricsInterceptor(MeterRegistry meterRegistry,
+                                 @Value("${sql.monitor.repeat-threshold:10}") int repeatThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    /**
+     * The async dispatch of a request picks up the stats its initial dispatch parked on the request.
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isMonitored(handler)) {
+            SqlRequestStats parked = (SqlRequestStats) request.getAttribute(ASYNC_STATS);
+            if (parked != null) {
+                request.removeAttribute(ASYNC_STATS);
+                SqlRequestContext.resume(parked);
+            } else {
+                SqlRequestContext.begin();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An async handler completes in a later dispatch; its stats are released from this thread and parked
+     * on the request, while the handler's own worker keeps recording into them.
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isMonitored(handler)) {
+            SqlRequestStats stats = SqlRequestContext.end();
+            if (stats != null) {
+                request.setAttribute(ASYNC_STATS, stats);
+            }
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!isMonitored(handler)) {
+            return;
+        }
+        SqlRequestStats stats = SqlRequestContext.end();
+        if (stats == null) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : request.getRequestURI();
+        Tags tags = Tags.of("uri", uri);
+
+        Timer.builder("sql.request.jdbc.time")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.getJdbcNanos(), TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("sql.request.statements")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        DistributionSummary.builder("sql.request.rows")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.getRows());
+
+        Map.Entry<String, Integer> mostRepeated = stats.mostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() > repeatThreshold) {
+            Counter.builder("sql.request.repeated")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("possible N+1: {} ran the same statement {} times: {}", uri, mostRepeated.getValue(), mostRepeated.getKey());
+        }
+    }
+
+    private boolean isMonitored(Object handler) {
+        return handler instanceof HandlerMethod
+                && MemberController.class.isAssignableFrom(((HandlerMethod) handler).getBeanType());
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.querydsl.monitoring;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Binds the {@link SqlRequestStats} of the request being served to the current thread.
+ */
+public final class SqlRequestContext {
+
+    private static final ThreadLocal<SqlRequestStats> CURRENT = new ThreadLocal<>();
+
+    private SqlRequestContext() {
+    }
+
+    public static SqlRequestStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the task with the caller's stats bound, so statements executed on a worker thread
+     * are still attributed to the request that submitted them.
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        SqlRequestStats stats = CURRENT.get();
+        return () -> {
+            SqlRequestStats previous = CURRENT.get();
+            CURRENT.set(stats);
+            try {
+                return task.call();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    static void begin() {
+        CURRENT.set(new SqlRequestStats());
+    }
+
+    static void resume(SqlRequestStats stats) {
+        CURRENT.set(stats);
+    }
+
+    static SqlRequestStats end() {
+        SqlRequestStats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats;
+    }
+}
@@ -2,31 +2,43 @@ package com.example.querydsl.repository;
 
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
-import com.example.querydsl.dto.QMemberTeamDto;
 import com.example.querydsl.entity.Member;
 import com.example.querydsl.entity.QMember;
 import com.example.querydsl.entity.QTeam;
-import com.querydsl.core.BooleanBuilder;
+import com.example.querydsl.repository.support.MemberSearchTemplates;
+import com.example.querydsl.repository.support.UsernameNgramIndex;
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static com.example.querydsl.entity.QMember.member;
-import static com.example.querydsl.entity.QTeam.team;
-import static org.springframework.util.StringUtils.hasText;
+import static com.example.querydsl.repository.support.MemberSearchQueries.selectMemberTeam;
 
+/**
+ * Reads run in read-only transactions: Hibernate loads entities without dirty-checking snapshots
+ * and never flushes (FlushMode.MANUAL). Entity queries also carry the read-only hint, so their results
+ * stay read-only even when the caller's read-write transaction is joined; use findById to load for update.
+ */
 @Repository
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchTemplates searchTemplates;
+    private final UsernameNgramIndex usernameIndex;
 
+    @Transactional
     public void save(Member member) {
         em.persist(member);
     }
@@ -38,18 +50,21 @@ public class MemberJpaRepository {
 
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class)
+                .setHint(QueryHints.READ_ONLY, true)
                 .getResultList();
     }
 
     public List<Member> findAll_Querydsl() {
         return queryFactory
                 .selectFrom(member)
+                .setHint(QueryHints.READ_ONLY, true)
                 .fetch();
     }
 
     public List<Member> findByUsername(String username) {
         return em.createQuery("select m from Member m where m.username = :username", Member.class)
                 .setParameter("username", username)
+                .setHint(QueryHints.READ_ONLY, true)
                 .getResultList();
     }
 
@@ -57,39 +72,31 @@ public class MemberJpaRepository {
         return queryFactory
                 .selectFrom(member)
                 .where(member.username.eq(username))
+                .setHint(QueryHints.READ_ONLY, true)
                 .fetch();
     }
 
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
-        BooleanBuilder booleanBuilder = new BooleanBuilder();
-        if (hasText(condition.getUsername())) {
-            booleanBuilder.and(member.username.eq(condition.getUsername()));
-        }
-        if (hasText(condition.getTeamName())) {
-            booleanBuilder.and(team.name.eq(condition.getTeamName()));
-        }
-        if (condition.getAgeGoe() != null) {
-            booleanBuilder.and(member.age.goe(condition.getAgeGoe()));
-        }
-        if (condition.getAgeLoe() != null) {
-            booleanBuilder.and(member.age.loe(condition.getAgeLoe()));
-        }
-
-        return queryFactory
-                .select(
-                        new QMemberTeamDto(
-                                member.id.as("memberId"),
-                                member.username,
-                                member.age,
-                                team.id.as("teamId"),
-                                team.name.as("teamName")
-                        )
-                )
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(booleanBuilder)
-                .fetch();
+        return searchTemplates.fetchAll(condition);
+    }
 
+    /**
+     * Same query as searchByBuilder, read through a forward-only cursor instead of a list.
+     * The persistence context is cleared every fetchSize rows so memory stays flat for any result size.
+     */
+    public void streamByBuilder(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> consumer) {
+        try (CloseableIterator<MemberTeamDto> iterator = selectMemberTeam(queryFactory, condition)
+                .where(usernameIndex.filter(condition))
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .iterate()) {
+            int count = 0;
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                if (++count % fetchSize == 0) {
+                    em.clear();
+                }
+            }
+        }
     }
 
 
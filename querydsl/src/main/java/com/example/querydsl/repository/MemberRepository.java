@@ -2,11 +2,25 @@ package com.example.querydsl.repository;
 
 import com.example.querydsl.entity.Member;
 import com.example.querydsl.entity.QMember;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
 
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom, QuerydslPredicateExecutor<Member> {
 
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.READ_ONLY, value = "true"))
     Member findByUsername(String username);
 
+    @Transactional(readOnly = true)
+    @EntityGraph(attributePaths = "team")
+    @QueryHints(value = @QueryHint(name = org.hibernate.annotations.QueryHints.READ_ONLY, value = "true"), forCounting = false)
+    Page<Member> findAllWithTeamBy(Pageable pageable);
+
 }
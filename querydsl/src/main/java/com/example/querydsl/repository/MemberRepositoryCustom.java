@@ -1,16 +1,30 @@
 package com.example.querydsl.repository;
 
+import com.example.querydsl.dto.BulkProgress;
+import com.example.querydsl.dto.EstimatedPage;
+import com.example.querydsl.dto.KeysetSlice;
+import com.example.querydsl.dto.MemberKeysetSort;
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.support.SearchCancellation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MemberRepositoryCustom {
 
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, SearchCancellation cancellation);
+    EstimatedPage<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable);
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+    KeysetSlice<MemberTeamDto> searchKeyset(MemberSearchCondition condition, MemberKeysetSort sort, String after, int size);
+
+    long bulkAddAge(MemberSearchCondition condition, int amount, int chunkSize, Consumer<BulkProgress> progressListener);
+    long bulkDelete(MemberSearchCondition condition, int chunkSize, Consumer<BulkProgress> progressListener);
 
 
 }
@@ -0,0 +1,21 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Team;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import javax.persistence.QueryHint;
+import java.util.Optional;
+
+public interface TeamRepository extends JpaRepository<Team, Long> {
+
+    /**
+     * Team names are not unique; the oldest team wins, as it does for member imports.
+     */
+    @org.springframework.data.jpa.repository.QueryHints({
+            @QueryHint(name = QueryHints.CACHEABLE, value = "true"),
+            @QueryHint(name = QueryHints.CACHE_REGION, value = "team-queries")
+    })
+    Optional<Team> findFirstByNameOrderByIdAsc(String name);
+
+}
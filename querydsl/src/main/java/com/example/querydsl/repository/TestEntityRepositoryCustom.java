@@ -0,0 +1,14 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.TestEntity;
+import com.example.querydsl.entity.TestId;
+
+import java.util.List;
+
+public interface TestEntityRepositoryCustom {
+
+    List<TestEntity> findAllByIdInOrder(List<TestId> ids);
+
+    void insertAll(Iterable<TestEntity> entities);
+
+}
@@ -1,110 +1,384 @@
 package com.example.querydsl.repository.impl;
 
+import com.example.querydsl.dto.BulkProgress;
+import com.example.querydsl.dto.EstimatedPage;
+import com.example.querydsl.dto.KeysetSlice;
+import com.example.querydsl.dto.MemberKeysetCursor;
+import com.example.querydsl.dto.MemberKeysetSort;
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
-import com.example.querydsl.dto.QMemberTeamDto;
 import com.example.querydsl.entity.Member;
+import com.example.querydsl.event.EntityChangeType;
+import com.example.querydsl.event.MembersBulkChangedEvent;
 import com.example.querydsl.repository.MemberRepositoryCustom;
-import com.querydsl.core.BooleanBuilder;
-import com.querydsl.core.QueryResults;
+import com.example.querydsl.repository.support.ConcurrentCountExecutor;
+import com.example.querydsl.repository.support.MemberCardinalityHistogram;
+import com.example.querydsl.repository.support.MemberCountCache;
+import com.example.querydsl.repository.support.MemberSearchTemplates;
+import com.example.querydsl.repository.support.SearchCancellation;
+import com.example.querydsl.repository.support.UsernameNgramIndex;
+import com.example.querydsl.support.Transactions;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 import static com.example.querydsl.entity.QMember.member;
 import static com.example.querydsl.entity.QTeam.team;
+import static com.example.querydsl.entity.QTestEntity.testEntity;
+import static com.example.querydsl.repository.support.MemberSearchQueries.searchCondition;
+import static com.example.querydsl.repository.support.MemberSearchQueries.selectMemberTeam;
 import static org.springframework.util.StringUtils.hasText;
 
+@Slf4j
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     @Autowired
     JPAQueryFactory queryFactory;
 
+    @Autowired
+    MemberSearchTemplates searchTemplates;
+
+    @Autowired
+    MemberCountCache countCache;
+
+    @Autowired
+    ConcurrentCountExecutor countExecutor;
+
+    @Autowired
+    MemberCardinalityHistogram histogram;
+
+    @Autowired
+    UsernameNgramIndex usernameIndex;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Value("${member.search.concurrent-count:false}")
+    boolean concurrentCount;
+
+    @Value("${member.search.estimate.exact-threshold:10000}")
+    long exactThreshold;
+
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        BooleanBuilder booleanBuilder = new BooleanBuilder();
-        if (hasText(condition.getUsername())) {
-            booleanBuilder.and(member.username.eq(condition.getUsername()));
-        }
-        if (hasText(condition.getTeamName())) {
-            booleanBuilder.and(team.name.eq(condition.getTeamName()));
+        long total = searchTemplates.fetchCount(condition);
+
+        List<MemberTeamDto> content = total > 0
+                ? searchTemplates.fetchPage(condition, pageable.getOffset(), pageable.getPageSize())
+                : Collections.emptyList();
+
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return searchPageComplex(condition, pageable, new SearchCancellation());
+    }
+
+    /**
+     * The cancellation aborts the statements of this transaction's session and of the concurrent count.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable,
+                                                 SearchCancellation cancellation) {
+        Session session = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory).unwrap(Session.class);
+        cancellation.register(session::cancelQuery);
+
+        // a separate EntityManager cannot see rows the current read-write transaction has not committed
+        if (concurrentCount && !Transactions.inReadWriteTransaction() && countCache.getIfPresent(condition) == null) {
+            return searchPageConcurrently(condition, pageable, cancellation);
         }
-        if (condition.getAgeGoe() != null) {
-            booleanBuilder.and(member.age.goe(condition.getAgeGoe()));
+
+        List<MemberTeamDto> content = searchTemplates.fetchPage(condition, pageable.getOffset(), pageable.getPageSize());
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> countCache.get(condition, () -> searchTemplates.fetchCount(condition)));
+    }
+
+    /**
+     * Totals from the cardinality histogram instead of a count query. Below exact-threshold, and for
+     * username searches the histogram cannot estimate, the exact count is cheap enough and used instead.
+     * A short page pins the total exactly; a full page keeps at least one more page reachable.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public EstimatedPage<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable) {
+        OptionalLong estimate = histogram.estimate(condition);
+        if (!estimate.isPresent() || estimate.getAsLong() < exactThreshold) {
+            Page<MemberTeamDto> page = searchPageSimple(condition, pageable);
+            return new EstimatedPage<>(page.getContent(), pageable, page.getTotalElements(), false);
         }
-        if (condition.getAgeLoe() != null) {
-            booleanBuilder.and(member.age.loe(condition.getAgeLoe()));
+
+        List<MemberTeamDto> content = searchTemplates.fetchPage(condition, pageable.getOffset(), pageable.getPageSize());
+        if (!content.isEmpty() && content.size() < pageable.getPageSize()) {
+            return new EstimatedPage<>(content, pageable, pageable.getOffset() + content.size(), false);
         }
+        long total = content.isEmpty()
+                ? estimate.getAsLong()
+                : Math.max(estimate.getAsLong(), pageable.getOffset() + content.size() + 1);
+        return new EstimatedPage<>(content, pageable, total, true);
+    }
 
-        QueryResults<MemberTeamDto> result = queryFactory
-                .select(
-                        new QMemberTeamDto(
-                                member.id.as("memberId"),
-                                member.username,
-                                member.age,
-                                team.id.as("teamId"),
-                                team.name.as("teamName")
-                        )
-                )
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(booleanBuilder)
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults();
-
-        List<MemberTeamDto> content = result.getResults();
-        long total = result.getTotal();
-        return new PageImpl<>(content, pageable, total);
+    /**
+     * No count query: one extra row tells whether a next slice exists.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        return searchTemplates.fetchSlice(condition, pageable);
+    }
+
+    private Page<MemberTeamDto> searchPageConcurrently(MemberSearchCondition condition, Pageable pageable,
+                                                       SearchCancellation cancellation) {
+        MemberCountCache.Stamp started = countCache.stamp();
+        ConcurrentCountExecutor.CountTask countTask = countExecutor.submit(condition);
+        try {
+            cancellation.register(countTask::cancel);
+            List<MemberTeamDto> content = searchTemplates.fetchPage(condition, pageable.getOffset(), pageable.getPageSize());
+            return PageableExecutionUtils.getPage(content, pageable,
+                    () -> countCache.get(condition, started, countTask::join));
+        } finally {
+            // no-op when the count was used; cancels it when the content made it unnecessary or failed
+            countTask.cancel();
+        }
     }
 
     @Override
-    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        BooleanBuilder booleanBuilder = new BooleanBuilder();
-        if (hasText(condition.getUsername())) {
-            booleanBuilder.and(member.username.eq(condition.getUsername()));
+    @Transactional(readOnly = true)
+    public KeysetSlice<MemberTeamDto> searchKeyset(MemberSearchCondition condition, MemberKeysetSort sort, String after, int size) {
+        MemberKeysetCursor cursor = hasText(after) ? MemberKeysetCursor.decode(after) : null;
+        MemberKeysetSort keysetSort = cursor != null ? cursor.getSort() : sort;
+
+        List<MemberTeamDto> content = keysetSort == MemberKeysetSort.USERNAME
+                ? fetchUsernameKeyset(condition, cursor, size + 1)
+                : fetchKeyset(condition, keysetSort, cursor, size + 1);
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
         }
-        if (hasText(condition.getTeamName())) {
-            booleanBuilder.and(team.name.eq(condition.getTeamName()));
+        String nextCursor = hasNext ? MemberKeysetCursor.of(keysetSort, content.get(size - 1)).encode() : null;
+        return new KeysetSlice<>(content, size, hasNext, nextCursor);
+    }
+
+    private JPAQuery<MemberTeamDto> keysetQuery(MemberSearchCondition condition) {
+        return selectMemberTeam(queryFactory, condition)
+                .where(usernameIndex.filter(condition));
+    }
+
+    private List<MemberTeamDto> fetchKeyset(MemberSearchCondition condition, MemberKeysetSort sort,
+                                            MemberKeysetCursor cursor, int limit) {
+        JPAQuery<MemberTeamDto> query = keysetQuery(condition);
+        if (cursor != null) {
+            query.where(sort == MemberKeysetSort.AGE ? seekAfterAge(cursor) : member.id.gt(cursor.getId()));
         }
-        if (condition.getAgeGoe() != null) {
-            booleanBuilder.and(member.age.goe(condition.getAgeGoe()));
+        return query
+                .orderBy(sort == MemberKeysetSort.AGE
+                        ? new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()}
+                        : new OrderSpecifier<?>[]{member.id.asc()})
+                .limit(limit)
+                .fetch();
+    }
+
+    private static Predicate seekAfterAge(MemberKeysetCursor cursor) {
+        int age = Integer.parseInt(cursor.getKey());
+        return member.age.gt(age)
+                .or(member.age.eq(age).and(member.id.gt(cursor.getId())));
+    }
+
+    /**
+     * Members with a username come first, seeking and ordering on the raw column so idx_member_username_id
+     * serves both; members without one follow as a trailing segment in id order, read once the first runs out.
+     */
+    private List<MemberTeamDto> fetchUsernameKeyset(MemberSearchCondition condition, MemberKeysetCursor cursor, int limit) {
+        List<MemberTeamDto> content = new ArrayList<>();
+        if (cursor == null || cursor.getKey() != null) {
+            JPAQuery<MemberTeamDto> named = keysetQuery(condition);
+            if (cursor == null) {
+                named.where(member.username.isNotNull());
+            } else {
+                named.where(member.username.gt(cursor.getKey())
+                        .or(member.username.eq(cursor.getKey()).and(member.id.gt(cursor.getId()))));
+            }
+            content.addAll(named
+                    .orderBy(member.username.asc(), member.id.asc())
+                    .limit(limit)
+                    .fetch());
+            if (content.size() == limit) {
+                return content;
+            }
         }
-        if (condition.getAgeLoe() != null) {
-            booleanBuilder.and(member.age.loe(condition.getAgeLoe()));
+        JPAQuery<MemberTeamDto> unnamed = keysetQuery(condition)
+                .where(member.username.isNull());
+        if (cursor != null && cursor.getKey() == null) {
+            unnamed.where(member.id.gt(cursor.getId()));
         }
+        content.addAll(unnamed
+                .orderBy(member.id.asc())
+                .limit(limit - content.size())
+                .fetch());
+        return content;
+    }
 
-        List<MemberTeamDto> content = queryFactory
-                .select(
-                        new QMemberTeamDto(
-                                member.id.as("memberId"),
-                                member.username,
-                                member.age,
-                                team.id.as("teamId"),
-                                team.name.as("teamName")
-                        )
-                )
+    @Override
+    public long bulkAddAge(MemberSearchCondition condition, int amount, int chunkSize, Consumer<BulkProgress> progressListener) {
+        return bulkExecute(condition, chunkSize, EntityChangeType.UPDATE, progressListener, ids -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(amount))
+                .where(member.id.in(ids))
+                .execute());
+    }
+
+    /**
+     * TestEntity rows reference their member by foreign key; they are deleted with their members,
+     * in the same chunk transaction, so a chunk never fails half-way on the constraint.
+     */
+    @Override
+    public long bulkDelete(MemberSearchCondition condition, int chunkSize, Consumer<BulkProgress> progressListener) {
+        return bulkExecute(condition, chunkSize, EntityChangeType.DELETE, progressListener, ids -> {
+            queryFactory
+                    .delete(testEntity)
+                    .where(testEntity.member.id.in(ids))
+                    .execute();
+            return queryFactory
+                    .delete(member)
+                    .where(member.id.in(ids))
+                    .execute();
+        });
+    }
+
+    /**
+     * Walks the matching members in id order and applies the statement one chunk of ids at a time,
+     * each chunk in its own transaction, so locks and undo stay bounded by the chunk size.
+     * JPQL bulk statements cannot join team, so the predicate is resolved by the id select
+     * and the statement itself only targets the selected ids.
+     * Rejected inside a read-write transaction: the chunks could wait on rows that transaction has locked,
+     * and syncing its persistence context would discard its unflushed member changes.
+     */
+    private long bulkExecute(MemberSearchCondition condition, int chunkSize, EntityChangeType type,
+                             Consumer<BulkProgress> progressListener, ToLongFunction<List<Long>> statement) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        if (Transactions.inReadWriteTransaction()) {
+            throw new IllegalTransactionStateException("bulk member changes commit per chunk and cannot run inside a read-write transaction");
+        }
+        TransactionTemplate chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        long rows = 0;
+        int chunks = 0;
+        Long lastId = null;
+        while (true) {
+            Long after = lastId;
+            List<Long> ids = chunkTransaction.execute(status -> {
+                List<Long> chunk = selectChunkIds(condition, after, chunkSize);
+                if (!chunk.isEmpty()) {
+                    statement.applyAsLong(chunk);
+                }
+                return chunk;
+            });
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+            chunks++;
+            rows += ids.size();
+            lastId = ids.get(ids.size() - 1);
+
+            syncPersistenceContext(ids, type);
+            eventPublisher.publishEvent(new MembersBulkChangedEvent(type, ids));
+
+            BulkProgress progress = new BulkProgress(chunks, rows, lastId);
+            log.debug("bulk {} members: {}", type, progress);
+            if (progressListener != null) {
+                progressListener.accept(progress);
+            }
+            if (ids.size() < chunkSize) {
+                break;
+            }
+        }
+        log.info("bulk {} of {} members finished in {} chunks", type, rows, chunks);
+        return rows;
+    }
+
+    private List<Long> selectChunkIds(MemberSearchCondition condition, Long after, int chunkSize) {
+        JPAQuery<Long> query = queryFactory
+                .select(member.id)
                 .from(member)
-                .leftJoin(member.team, team)
-                .where(booleanBuilder)
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+                .where(searchCondition(condition), usernameIndex.filter(condition));
+        if (hasText(condition.getTeamName())) {
+            query.join(member.team, team);
+        }
+        if (after != null) {
+            query.where(member.id.gt(after));
+        }
+        return query
+                .orderBy(member.id.asc())
+                .limit(chunkSize)
                 .fetch();
+    }
 
-        JPAQuery<Member> countQuery = queryFactory
-                .selectFrom(member)
-                .leftJoin(member.team, team)
-                .where(booleanBuilder)
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize());
-
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
-//        return new PageImpl<>(content, pageable, count);
+    /**
+     * Bulk statements bypass the caller's persistence context, which would otherwise keep serving
+     * the old age or a deleted member. Managed copies are refreshed inside the caller's (read-only)
+     * transaction and detached otherwise (open-in-view without a transaction cannot refresh).
+     */
+    private void syncPersistenceContext(List<Long> ids, EntityChangeType type) {
+        EntityManager callerEm = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        if (callerEm == null) {
+            return;
+        }
+        boolean refresh = type == EntityChangeType.UPDATE && TransactionSynchronizationManager.isActualTransactionActive();
+        SessionImplementor session = callerEm.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        for (Long id : ids) {
+            Object managed = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+            if (managed == null) {
+                continue;
+            }
+            if (refresh) {
+                callerEm.refresh(managed);
+            } else {
+                callerEm.detach(managed);
+            }
+        }
     }
 }
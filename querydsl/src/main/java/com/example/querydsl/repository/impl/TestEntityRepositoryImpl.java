@@ -0,0 +1,120 @@
+package com.example.querydsl.repository.impl;
+
+import com.example.querydsl.entity.TestEntity;
+import com.example.querydsl.entity.TestId;
+import com.example.querydsl.repository.TestEntityRepositoryCustom;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.example.querydsl.entity.QTestEntity.testEntity;
+
+public class TestEntityRepositoryImpl implements TestEntityRepositoryCustom {
+
+    /**
+     * Keys per statement; each key binds at most two parameters, well under driver and database limits.
+     */
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}")
+    int batchSize;
+
+    /**
+     * One select per CHUNK_SIZE keys instead of one per key. Keys are grouped by member into
+     * (member_id = ? and test_id in (...)) or ..., since JPQL has no portable row-value IN.
+     * Results follow the order of ids; keys without a row are skipped, as in findAllById.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<TestEntity> findAllByIdInOrder(List<TestId> ids) {
+        Set<TestId> distinct = new LinkedHashSet<>(ids);
+        Map<TestId, TestEntity> found = new HashMap<>(distinct.size() * 2);
+
+        List<TestId> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (TestId id : distinct) {
+            chunk.add(id);
+            if (chunk.size() == CHUNK_SIZE) {
+                fetchChunk(chunk, found);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            fetchChunk(chunk, found);
+        }
+
+        List<TestEntity> result = new ArrayList<>(ids.size());
+        for (TestId id : ids) {
+            TestEntity entity = found.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    private void fetchChunk(List<TestId> chunk, Map<TestId, TestEntity> found) {
+        Map<Long, List<Long>> testIdsByMember = new LinkedHashMap<>();
+        for (TestId id : chunk) {
+            testIdsByMember.computeIfAbsent(id.getMember(), member -> new ArrayList<>()).add(id.getTestId());
+        }
+        BooleanBuilder keys = new BooleanBuilder();
+        testIdsByMember.forEach((memberId, testIds) ->
+                keys.or(testEntity.member.id.eq(memberId).and(testEntity.testId.in(testIds))));
+
+        // the member id comes from the FK column, so the lazy member proxy is never initialized
+        List<Tuple> rows = queryFactory
+                .select(testEntity.member.id, testEntity)
+                .from(testEntity)
+                .where(keys)
+                .fetch();
+        for (Tuple row : rows) {
+            TestEntity entity = row.get(testEntity);
+            found.put(new TestId(row.get(testEntity.member.id), entity.getTestId()), entity);
+        }
+    }
+
+    /**
+     * Persists new rows without merge pre-selects, flushing one JDBC batch at a time and detaching
+     * what was flushed, so memory stays bounded by one batch whatever the number of entities.
+     */
+    @Override
+    @Transactional
+    public void insertAll(Iterable<TestEntity> entities) {
+        List<TestEntity> batch = new ArrayList<>(batchSize);
+        for (TestEntity entity : entities) {
+            em.persist(entity);
+            batch.add(entity);
+            if (batch.size() == batchSize) {
+                flushAndDetach(batch);
+            }
+        }
+        flushAndDetach(batch);
+    }
+
+    private void flushAndDetach(List<TestEntity> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        em.flush();
+        batch.forEach(em::detach);
+        batch.clear();
+    }
+}
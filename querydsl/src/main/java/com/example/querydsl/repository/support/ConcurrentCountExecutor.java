@@ -0,0 +1,121 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.monitoring.SqlRequestContext;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs search count queries on a bounded pool, each on its own read-only EntityManager,
+ * so they can overlap with the content query of the same request.
+ * When the pool and its queue are full the count runs on the calling thread.
+ */
+@Component
+public class ConcurrentCountExecutor {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final MemberSearchTemplates searchTemplates;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+
+    public ConcurrentCountExecutor(EntityManagerFactory entityManagerFactory,
+                                   MemberSearchTemplates searchTemplates,
+                                   @Value("${member.search.count-threads:4}") int threads,
+                                   @Value("${member.search.count-queue:100}") int queueSize,
+                                   @Value("${member.search.count-timeout:PT10S}") Duration timeout) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.searchTemplates = searchTemplates;
+        this.timeout = timeout;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "member-count-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public CountTask submit(MemberSearchCondition condition) {
+        CountTask task = new CountTask();
+        task.future = executor.submit(SqlRequestContext.propagate(() -> task.count(condition)));
+        return task;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public class CountTask {
+
+        private volatile Future<Long> future;
+        private volatile Session session;
+
+        private long count(MemberSearchCondition condition) {
+            EntityManager entityManager = entityManagerFactory.createEntityManager();
+            try {
+                session = entityManager.unwrap(Session.class);
+                session.setDefaultReadOnly(true);
+                session.setHibernateFlushMode(FlushMode.MANUAL);
+                return searchTemplates.fetchCount(entityManager, condition);
+            } finally {
+                session = null;
+                entityManager.close();
+            }
+        }
+
+        public long join() {
+            try {
+                return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new CancellationException("count query cancelled");
+            } catch (TimeoutException e) {
+                cancel();
+                throw new QueryTimeoutException("count query exceeded " + timeout);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        /**
+         * Aborts a running count statement through JDBC Statement.cancel(); no-op once finished.
+         */
+        public void cancel() {
+            if (future.isDone()) {
+                return;
+            }
+            future.cancel(true);
+            Session running = session;
+            if (running != null) {
+                try {
+                    running.cancelQuery();
+                } catch (RuntimeException ignored) {
+                    // the statement finished or the session closed in the meantime
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,782 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.event.EntityChangeEvent;
+import com.example.querydsl.event.EntityChangeType;
+import com.example.querydsl.event.MembersBulkChangedEvent;
+import com.example.querydsl.support.ReplayingRebuild;
+import com.example.querydsl.support.Transactions;
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * Optional (member.age-index.enabled) index for the ageGoe/ageLoe filters: per team, member ids ordered by
+ * (age, id) in immutable sorted chunks of primitive arrays. Range bounds are binary searches over primitives,
+ * so totals need no database round trip and a page resolves to the ids the content query then loads with
+ * member.id.in(...). Pages come back in (age, id) order; a page offset is skipped with the same bounds
+ * instead of walking the entries before it.
+ * A change copies the one chunk it touches and the partition's chunk table, so reads take no lock and a
+ * run of inserts into one team does not copy the whole team each time. Each member's current (team, age)
+ * is kept on the side, so a change without an old state, or a bulk statement, finds the one entry to drop.
+ * Built by streaming the table once the application is ready, patched from committed changes and
+ * periodically reconciled, like {@link MemberColumnarSnapshot}; a bulk update likewise leaves the index stale,
+ * and searches go to the database, until a background rebuild replaces it.
+ */
+@Slf4j
+@Component
+public class MemberAgeIndex {
+
+    private static final Long NO_TEAM = -1L;
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyTransaction;
+    private final AsyncTaskExecutor taskExecutor;
+    private final boolean enabled;
+    private final int maxIds;
+
+    // null until the first build
+    private final ReplayingRebuild<Partitions> partitions = new ReplayingRebuild<>(null);
+    private final Map<Long, String> teamNames = new ConcurrentHashMap<>();
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    public MemberAgeIndex(JPAQueryFactory queryFactory,
+                          PlatformTransactionManager transactionManager,
+                          AsyncTaskExecutor taskExecutor,
+                          @Value("${member.age-index.enabled:false}") boolean enabled,
+                          @Value("${member.age-index.max-ids:1000}") int maxIds) {
+        this.queryFactory = queryFactory;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * Age range searches, optionally by team name. Username filters are selective enough for the database.
+     */
+    public boolean canServe(MemberSearchCondition condition) {
+        Partitions current = partitions.current();
+        return enabled && current != null && !current.stale
+                && (condition.getAgeGoe() != null || condition.getAgeLoe() != null)
+                && !hasText(condition.getUsername())
+                && !UsernameNgramIndex.applies(condition)
+                && !Transactions.inReadWriteTransaction();
+    }
+
+    public long count(MemberSearchCondition condition) {
+        int from = ageFrom(condition);
+        int to = ageTo(condition);
+        long total = 0;
+        for (Partition partition : matchingPartitions(condition)) {
+            total += partition.upperBound(to) - partition.lowerBound(from);
+        }
+        return total;
+    }
+
+    /**
+     * Member ids of the requested page in (age, id) order, or null when the page is too large to
+     * be loaded through one id list.
+     */
+    public long[] pageIds(MemberSearchCondition condition, long offset, long limit) {
+        if (limit > maxIds) {
+            return null;
+        }
+        int from = ageFrom(condition);
+        int to = ageTo(condition);
+
+        List<Cursor> ranges = new ArrayList<>();
+        for (Partition partition : matchingPartitions(condition)) {
+            int start = partition.lowerBound(from);
+            int end = partition.upperBound(to);
+            if (start < end) {
+                ranges.add(new Cursor(partition, start, end));
+            }
+        }
+        skip(ranges, offset);
+
+        // k-way merge of the partitions' remaining ranges, each already in (age, id) order
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+        for (Cursor cursor : ranges) {
+            if (cursor.index < cursor.end) {
+                cursors.add(cursor);
+            }
+        }
+        long[] ids = new long[(int) limit];
+        int size = 0;
+        while (size < limit && !cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            ids[size++] = cursor.id();
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Moves the cursors past the first offset entries of their merged order: the boundary entry is found by
+     * a binary search over ages, then over ids within that age, counting the entries below each probe per partition.
+     */
+    private static void skip(List<Cursor> cursors, long offset) {
+        if (offset <= 0) {
+            return;
+        }
+        long total = 0;
+        for (Cursor cursor : cursors) {
+            total += cursor.end - cursor.index;
+        }
+        if (offset >= total) {
+            cursors.forEach(cursor -> cursor.seek(cursor.end));
+            return;
+        }
+        // largest key with at most offset entries below it; the loop invariant holds for the lower end
+        long low = Integer.MIN_VALUE;
+        long high = Integer.MAX_VALUE;
+        while (low < high) {
+            long mid = upperMid(low, high);
+            if (below(cursors, (int) mid, Long.MIN_VALUE) <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int age = (int) low;
+        low = Long.MIN_VALUE;
+        high = Long.MAX_VALUE;
+        while (low < high) {
+            long mid = upperMid(low, high);
+            if (below(cursors, age, mid) <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        for (Cursor cursor : cursors) {
+            cursor.seek(cursor.clamp(cursor.partition.position(age, low)));
+        }
+    }
+
+    /**
+     * Entries ordered before (age, id) within the cursors' ranges.
+     */
+    private static long below(List<Cursor> cursors, int age, long id) {
+        long below = 0;
+        for (Cursor cursor : cursors) {
+            below += cursor.clamp(cursor.partition.position(age, id)) - cursor.index;
+        }
+        return below;
+    }
+
+    /**
+     * Midpoint of low < high rounded up, without overflowing the long range.
+     */
+    private static long upperMid(long low, long high) {
+        return low + ((high - low - 1) >>> 1) + 1;
+    }
+
+    private List<Partition> matchingPartitions(MemberSearchCondition condition) {
+        Map<Long, Partition> byTeam = partitions.current().byTeam;
+        if (!hasText(condition.getTeamName())) {
+            return new ArrayList<>(byTeam.values());
+        }
+        List<Partition> matching = new ArrayList<>();
+        teamNames.forEach((teamId, name) -> {
+            if (name.equals(condition.getTeamName())) {
+                Partition partition = byTeam.get(teamId);
+                if (partition != null) {
+                    matching.add(partition);
+                }
+            }
+        });
+        return matching;
+    }
+
+    private static int ageFrom(MemberSearchCondition condition) {
+        return condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+    }
+
+    private static int ageTo(MemberSearchCondition condition) {
+        return condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${member.age-index.reconcile-interval:PT5M}",
+            initialDelayString = "${member.age-index.reconcile-interval:PT5M}")
+    public void reconcile() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Streams (team, age, id) in index order, so each partition is filled by appends; patches from
+     * changes committed meanwhile are queued and replayed on top before the swap ({@link ReplayingRebuild}).
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            rebuildPartitions();
+        }
+    }
+
+    private void rebuildPartitions() {
+        long start = System.nanoTime();
+        Map<Long, String> names = new HashMap<>();
+        long[] rows = new long[1];
+        partitions.rebuild(() -> load(names, rows), (replaced, fresh) -> {
+            // names already patched by team events during the build are newer than the streamed ones
+            names.forEach(teamNames::putIfAbsent);
+            return fresh;
+        });
+        log.info("age index of {} members built in {} ms", rows[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Partitions load(Map<Long, String> names, long[] rows) {
+        Partitions fresh = new Partitions();
+        readOnlyTransaction.execute(status -> {
+            for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+                names.put(row.get(team.id), row.get(team.name));
+            }
+            try (CloseableIterator<Tuple> iterator = queryFactory
+                    .select(member.team.id, member.age, member.id)
+                    .from(member)
+                    .orderBy(member.team.id.asc(), member.age.asc(), member.id.asc())
+                    .setHint(QueryHints.FETCH_SIZE, 1000)
+                    .iterate()) {
+                PartitionBuilder builder = null;
+                while (iterator.hasNext()) {
+                    Tuple row = iterator.next();
+                    Long teamId = partitionKey(row.get(member.team.id));
+                    if (builder == null || !builder.teamId.equals(teamId)) {
+                        if (builder != null) {
+                            fresh.byTeam.put(builder.teamId, builder.build());
+                        }
+                        builder = new PartitionBuilder(teamId);
+                    }
+                    int age = row.get(member.age);
+                    long id = row.get(member.id);
+                    builder.add(age, id);
+                    fresh.locations.put(id, teamId, age);
+                    rows[0]++;
+                }
+                if (builder != null) {
+                    fresh.byTeam.put(builder.teamId, builder.build());
+                }
+            }
+            return null;
+        });
+        return fresh;
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isFor(Team.class)) {
+            Long teamId = (Long) event.getId();
+            if (event.getType() == EntityChangeType.DELETE) {
+                teamNames.remove(teamId);
+            } else {
+                teamNames.put(teamId, (String) event.getValue("name"));
+            }
+            return;
+        }
+        if (!event.isFor(Member.class)) {
+            return;
+        }
+        long id = (Long) event.getId();
+        if (event.getType() == EntityChangeType.DELETE) {
+            patch(target -> target.remove(id));
+            return;
+        }
+        // the member's previous entry is found through its recorded location, so the old state is not needed
+        Long teamId = partitionKey(Team.idOf((Team) event.getValue("team")));
+        int age = (Integer) event.getValue("age");
+        patch(target -> target.put(id, teamId, age));
+    }
+
+    /**
+     * Bulk statements carry no old or new values. Deleted ids are dropped; updated rows would need a re-read
+     * on the commit path, which could also land after a newer single-row change, so the index goes stale
+     * and a background rebuild is queued, as in {@link MemberColumnarSnapshot}.
+     */
+    @EventListener
+    public void onMembersBulkChanged(MembersBulkChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getType() == EntityChangeType.DELETE) {
+            patch(target -> event.getMemberIds().forEach(target::remove));
+            return;
+        }
+        patch(target -> target.stale = true);
+        // one queued rebuild covers every bulk chunk committed before it starts
+        if (rebuildQueued.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                rebuildQueued.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("age index rebuild after a bulk update failed; searches use the database until the next reconcile", e);
+                }
+            });
+        }
+    }
+
+    private void patch(Consumer<Partitions> patch) {
+        partitions.apply(patch);
+    }
+
+    private static Long partitionKey(Long teamId) {
+        return teamId != null ? teamId : NO_TEAM;
+    }
+
+    /**
+     * The partitions readers see, plus where each member currently sits; only patches (under the rebuild
+     * helper's lock) touch the locations.
+     */
+    private static final class Partitions {
+
+        /**
+         * team id (NO_TEAM for members without a team) -> partition
+         */
+        private final Map<Long, Partition> byTeam = new ConcurrentHashMap<>();
+        private final Locations locations = new Locations();
+        // a bulk update moved members the index cannot place
+        private volatile boolean stale;
+
+        private void put(long id, Long teamId, int age) {
+            int slot = locations.find(id);
+            if (slot >= 0) {
+                long oldTeamId = locations.teamIds[slot];
+                int oldAge = locations.ages[slot];
+                if (oldTeamId == teamId && oldAge == age) {
+                    return;
+                }
+                byTeam.computeIfPresent(oldTeamId, (key, partition) -> partition.without(oldAge, id));
+            }
+            locations.put(id, teamId, age);
+            byTeam.compute(teamId, (key, partition) -> (partition != null ? partition : Partition.EMPTY).with(age, id));
+        }
+
+        private void remove(long id) {
+            int slot = locations.find(id);
+            if (slot < 0) {
+                return;
+            }
+            long teamId = locations.teamIds[slot];
+            int age = locations.ages[slot];
+            locations.removeAt(slot);
+            byTeam.computeIfPresent(teamId, (key, partition) -> partition.without(age, id));
+        }
+    }
+
+    /**
+     * Immutable (age, id)-sorted entries in chunks of at most MAX_CHUNK; starts[c] is the number of entries
+     * before chunk c, so a position inside a chunk maps to an index across the partition.
+     */
+    private static final class Partition {
+
+        private static final int FILL_CHUNK = 512;
+        private static final int MAX_CHUNK = 2 * FILL_CHUNK;
+        private static final Partition EMPTY = new Partition(new Chunk[0]);
+
+        private final Chunk[] chunks;
+        private final int[] starts;
+
+        private Partition(Chunk[] chunks) {
+            this.chunks = chunks;
+            this.starts = new int[chunks.length + 1];
+            for (int c = 0; c < chunks.length; c++) {
+                starts[c + 1] = starts[c] + chunks[c].ids.length;
+            }
+        }
+
+        private int size() {
+            return starts[chunks.length];
+        }
+
+        /**
+         * First index whose age is >= age.
+         */
+        private int lowerBound(int age) {
+            return position(age, Long.MIN_VALUE);
+        }
+
+        /**
+         * First index whose age is > age.
+         */
+        private int upperBound(int age) {
+            return age == Integer.MAX_VALUE ? size() : position(age + 1, Long.MIN_VALUE);
+        }
+
+        /**
+         * Insertion point of (age, id): the first index ordered at or after it.
+         */
+        private int position(int age, long id) {
+            int c = chunkFor(age, id);
+            return c == chunks.length ? size() : starts[c] + chunks[c].position(age, id);
+        }
+
+        /**
+         * First chunk whose last entry is ordered at or after (age, id); chunks.length when there is none.
+         */
+        private int chunkFor(int age, long id) {
+            int low = 0;
+            int high = chunks.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (chunks[mid].lastBefore(age, id)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Chunk holding the entry at index, which must be below size().
+         */
+        private int chunkAt(int index) {
+            int low = 0;
+            int high = chunks.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (starts[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        private Partition with(int age, long id) {
+            if (chunks.length == 0) {
+                return new Partition(new Chunk[]{new Chunk(new int[]{age}, new long[]{id})});
+            }
+            int c = Math.min(chunkFor(age, id), chunks.length - 1);
+            Chunk changed = chunks[c].with(age, id);
+            if (changed == chunks[c]) {
+                return this;
+            }
+            if (changed.ids.length <= MAX_CHUNK) {
+                Chunk[] newChunks = chunks.clone();
+                newChunks[c] = changed;
+                return new Partition(newChunks);
+            }
+            Chunk[] newChunks = new Chunk[chunks.length + 1];
+            System.arraycopy(chunks, 0, newChunks, 0, c);
+            newChunks[c] = changed.slice(0, changed.ids.length / 2);
+            newChunks[c + 1] = changed.slice(changed.ids.length / 2, changed.ids.length);
+            System.arraycopy(chunks, c + 1, newChunks, c + 2, chunks.length - c - 1);
+            return new Partition(newChunks);
+        }
+
+        private Partition without(int age, long id) {
+            int c = chunkFor(age, id);
+            if (c == chunks.length) {
+                return this;
+            }
+            Chunk changed = chunks[c].without(age, id);
+            if (changed == chunks[c]) {
+                return this;
+            }
+            if (changed.ids.length > 0) {
+                Chunk[] newChunks = chunks.clone();
+                newChunks[c] = changed;
+                return new Partition(newChunks);
+            }
+            Chunk[] newChunks = new Chunk[chunks.length - 1];
+            System.arraycopy(chunks, 0, newChunks, 0, c);
+            System.arraycopy(chunks, c + 1, newChunks, c, chunks.length - c - 1);
+            return new Partition(newChunks);
+        }
+    }
+
+    /**
+     * Immutable, non-empty once in a partition: parallel (age, id)-sorted arrays; every change returns a new chunk.
+     */
+    private static final class Chunk {
+
+        private final int[] ages;
+        private final long[] ids;
+
+        private Chunk(int[] ages, long[] ids) {
+            this.ages = ages;
+            this.ids = ids;
+        }
+
+        private boolean lastBefore(int age, long id) {
+            int last = ids.length - 1;
+            return ages[last] < age || ages[last] == age && ids[last] < id;
+        }
+
+        /**
+         * Insertion point of (age, id): the first index ordered at or after it.
+         */
+        private int position(int age, long id) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ages[mid] < age || ages[mid] == age && ids[mid] < id) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private Chunk with(int age, long id) {
+            int at = position(age, id);
+            if (at < ids.length && ages[at] == age && ids[at] == id) {
+                return this;
+            }
+            int[] newAges = new int[ages.length + 1];
+            long[] newIds = new long[ids.length + 1];
+            System.arraycopy(ages, 0, newAges, 0, at);
+            System.arraycopy(ids, 0, newIds, 0, at);
+            newAges[at] = age;
+            newIds[at] = id;
+            System.arraycopy(ages, at, newAges, at + 1, ages.length - at);
+            System.arraycopy(ids, at, newIds, at + 1, ids.length - at);
+            return new Chunk(newAges, newIds);
+        }
+
+        private Chunk without(int age, long id) {
+            int at = position(age, id);
+            if (at == ids.length || ages[at] != age || ids[at] != id) {
+                return this;
+            }
+            int[] newAges = new int[ages.length - 1];
+            long[] newIds = new long[ids.length - 1];
+            System.arraycopy(ages, 0, newAges, 0, at);
+            System.arraycopy(ids, 0, newIds, 0, at);
+            System.arraycopy(ages, at + 1, newAges, at, ages.length - at - 1);
+            System.arraycopy(ids, at + 1, newIds, at, ids.length - at - 1);
+            return new Chunk(newAges, newIds);
+        }
+
+        private Chunk slice(int from, int to) {
+            return new Chunk(Arrays.copyOfRange(ages, from, to), Arrays.copyOfRange(ids, from, to));
+        }
+    }
+
+    private static final class PartitionBuilder {
+
+        private final Long teamId;
+        private final List<Chunk> chunks = new ArrayList<>();
+        private int[] ages = new int[Partition.FILL_CHUNK];
+        private long[] ids = new long[Partition.FILL_CHUNK];
+        private int size;
+
+        private PartitionBuilder(Long teamId) {
+            this.teamId = teamId;
+        }
+
+        /**
+         * Fills chunks halfway, leaving room for inserts before a chunk has to split.
+         */
+        private void add(int age, long id) {
+            ages[size] = age;
+            ids[size] = id;
+            if (++size == Partition.FILL_CHUNK) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (size > 0) {
+                chunks.add(new Chunk(Arrays.copyOf(ages, size), Arrays.copyOf(ids, size)));
+                size = 0;
+            }
+        }
+
+        private Partition build() {
+            flush();
+            return new Partition(chunks.toArray(new Chunk[0]));
+        }
+    }
+
+    /**
+     * Open-addressing member id -> (partition key, age) map on primitive arrays.
+     */
+    private static final class Locations {
+
+        private static final long EMPTY = Long.MIN_VALUE;
+        private static final long REMOVED = Long.MIN_VALUE + 1;
+
+        private long[] keys = newKeys(1024);
+        private long[] teamIds = new long[1024];
+        private int[] ages = new int[1024];
+        private int used;
+        private int live;
+
+        private int find(long id) {
+            int mask = keys.length - 1;
+            for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == id) {
+                    return slot;
+                }
+                if (keys[slot] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        private void put(long id, long teamId, int age) {
+            if ((used + 1) * 2 > keys.length) {
+                // removed slots count as used; only grow when live entries need the room
+                rehash((live + 1) * 4 > keys.length ? keys.length * 2 : keys.length);
+            }
+            int mask = keys.length - 1;
+            int free = -1;
+            int slot = hash(id) & mask;
+            for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == id) {
+                    teamIds[slot] = teamId;
+                    ages[slot] = age;
+                    return;
+                }
+                if (keys[slot] == REMOVED && free < 0) {
+                    free = slot;
+                }
+            }
+            if (free < 0) {
+                free = slot;
+                used++;
+            }
+            keys[free] = id;
+            teamIds[free] = teamId;
+            ages[free] = age;
+            live++;
+        }
+
+        private void removeAt(int slot) {
+            keys[slot] = REMOVED;
+            live--;
+        }
+
+        private void rehash(int size) {
+            long[] oldKeys = keys;
+            long[] oldTeamIds = teamIds;
+            int[] oldAges = ages;
+            keys = newKeys(size);
+            teamIds = new long[size];
+            ages = new int[size];
+            used = 0;
+            live = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY && oldKeys[slot] != REMOVED) {
+                    put(oldKeys[slot], oldTeamIds[slot], oldAges[slot]);
+                }
+            }
+        }
+
+        private static long[] newKeys(int size) {
+            long[] keys = new long[size];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * A partition's [index, end) range, walked entry by entry without re-locating the chunk each step.
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+
+        private final Partition partition;
+        private final int start;
+        private final int end;
+        private int index;
+        private int chunk;
+        private int local;
+
+        private Cursor(Partition partition, int start, int end) {
+            this.partition = partition;
+            this.start = start;
+            this.end = end;
+            seek(start);
+        }
+
+        private int clamp(int position) {
+            return Math.max(start, Math.min(end, position));
+        }
+
+        private void seek(int index) {
+            this.index = index;
+            if (index < end) {
+                chunk = partition.chunkAt(index);
+                local = index - partition.starts[chunk];
+            }
+        }
+
+        private boolean advance() {
+            if (++index >= end) {
+                return false;
+            }
+            if (++local == partition.chunks[chunk].ids.length) {
+                chunk++;
+                local = 0;
+            }
+            return true;
+        }
+
+        private int age() {
+            return partition.chunks[chunk].ages[local];
+        }
+
+        private long id() {
+            return partition.chunks[chunk].ids[local];
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int byAge = Integer.compare(age(), other.age());
+            return byAge != 0 ? byAge : Long.compare(id(), other.id());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.event.EntityChangeEvent;
+import com.example.querydsl.event.EntityChangeType;
+import com.example.querydsl.event.MembersBulkChangedEvent;
+import com.example.querydsl.support.ReplayingRebuild;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+
+/**
+ * Member counts per (team, age), kept current from committed Member/Team changes, for estimating
+ * search totals without a count query. Built from one group-by scan on first use, rebuilt after
+ * changes the events cannot describe (bulk statements, updates without a loaded old state) and
+ * periodically reconciled. Changes committed while a rebuild scans are queued and replayed onto the
+ * new counts before they are swapped in ({@link ReplayingRebuild}); concurrent rebuild requests share a
+ * single scan. As in TeamStatsRollup, a member change whose commit the group-by already saw but whose
+ * post-commit event arrived after the queue opened is counted twice until the next reconcile.
+ * Usernames are not tracked: username searches are not estimated.
+ */
+@Component
+public class MemberCardinalityHistogram {
+
+    private static final String REBUILD = "rebuild";
+
+    private final JPAQueryFactory queryFactory;
+    private final SingleFlight<String, Boolean> rebuilds;
+
+    private final ReplayingRebuild<Counts> counts = new ReplayingRebuild<>(Counts.dirty());
+
+    public MemberCardinalityHistogram(JPAQueryFactory queryFactory,
+                                      @Value("${member.search.estimate.rebuild-wait-timeout:PT30S}") Duration waitTimeout) {
+        this.queryFactory = queryFactory;
+        this.rebuilds = new SingleFlight<>(Duration.ZERO, 1, waitTimeout);
+    }
+
+    /**
+     * Estimated total for the condition, empty when it filters on username (exactly or by pattern)
+     * or when a bulk change invalidated the counts again while they were being rebuilt.
+     */
+    public OptionalLong estimate(MemberSearchCondition condition) {
+        MemberSearchCondition normalized = condition.normalized();
+        if (normalized.getUsername() != null || UsernameNgramIndex.applies(normalized)) {
+            return OptionalLong.empty();
+        }
+        if (isDirty()) {
+            rebuilds.execute(REBUILD, this::rebuild);
+        }
+
+        int from = normalized.getAgeGoe() != null ? normalized.getAgeGoe() : Integer.MIN_VALUE;
+        int to = normalized.getAgeLoe() != null ? normalized.getAgeLoe() : Integer.MAX_VALUE;
+        if (from > to) {
+            return OptionalLong.of(0);
+        }
+        return counts.read(live -> {
+            if (live.dirty) {
+                return OptionalLong.empty();
+            }
+            long total = 0;
+            for (Map.Entry<Long, NavigableMap<Integer, Long>> entry : live.ageCountsByTeam.entrySet()) {
+                if (normalized.getTeamName() != null
+                        && (entry.getKey() == null || !normalized.getTeamName().equals(live.teamNames.get(entry.getKey())))) {
+                    continue;
+                }
+                for (long count : entry.getValue().subMap(from, true, to, true).values()) {
+                    total += count;
+                }
+            }
+            return OptionalLong.of(total);
+        });
+    }
+
+    @Transactional(readOnly = true)
+    @Scheduled(fixedDelayString = "${member.search.estimate.reconcile-interval:PT5M}",
+            initialDelayString = "${member.search.estimate.reconcile-interval:PT5M}")
+    public void reconcile() {
+        rebuilds.execute(REBUILD, this::rebuild);
+    }
+
+    private boolean isDirty() {
+        return counts.read(live -> live.dirty);
+    }
+
+    private Boolean rebuild() {
+        return !counts.rebuild(this::load).dirty;
+    }
+
+    private Counts load() {
+        Counts fresh = new Counts();
+        for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+            fresh.teamNames.put(row.get(team.id), row.get(team.name));
+        }
+        for (Tuple row : queryFactory
+                .select(member.team.id, member.age, member.count())
+                .from(member)
+                .groupBy(member.team.id, member.age)
+                .fetch()) {
+            fresh.ageCountsByTeam.computeIfAbsent(row.get(member.team.id), teamId -> new TreeMap<>())
+                    .put(row.get(member.age), row.get(member.count()));
+        }
+        return fresh;
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Team.class) || event.isFor(Member.class)) {
+            counts.apply(live -> live.apply(event));
+        }
+    }
+
+    @EventListener
+    public void onMembersBulkChanged(MembersBulkChangedEvent event) {
+        counts.apply(live -> live.dirty = true);
+    }
+
+    private static final class Counts {
+
+        /**
+         * team id (null for members without a team) -> age -> members
+         */
+        private final Map<Long, NavigableMap<Integer, Long>> ageCountsByTeam = new HashMap<>();
+        private final Map<Long, String> teamNames = new HashMap<>();
+        private boolean dirty;
+
+        private static Counts dirty() {
+            Counts counts = new Counts();
+            counts.dirty = true;
+            return counts;
+        }
+
+        private void apply(EntityChangeEvent event) {
+            if (dirty) {
+                return;
+            }
+            if (event.isFor(Team.class)) {
+                if (event.getType() == EntityChangeType.DELETE) {
+                    teamNames.remove((Long) event.getId());
+                } else {
+                    teamNames.put((Long) event.getId(), (String) event.getValue("name"));
+                }
+                return;
+            }
+            if (event.getType() == EntityChangeType.UPDATE && event.getOldState() == null) {
+                dirty = true;
+                return;
+            }
+            if (event.getOldState() != null) {
+                adjust(Team.idOf((Team) event.getOldValue("team")), (Integer) event.getOldValue("age"), -1);
+            }
+            if (event.getState() != null) {
+                adjust(Team.idOf((Team) event.getValue("team")), (Integer) event.getValue("age"), 1);
+            }
+        }
+
+        private void adjust(Long teamId, int age, long delta) {
+            NavigableMap<Integer, Long> ageCounts = ageCountsByTeam.computeIfAbsent(teamId, id -> new TreeMap<>());
+            long count = ageCounts.getOrDefault(age, 0L) + delta;
+            if (count > 0) {
+                ageCounts.put(age, count);
+            } else {
+                ageCounts.remove(age);
+            }
+        }
+    }
+}
@@ -0,0 +1,631 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.event.EntityChangeEvent;
+import com.example.querydsl.event.EntityChangeType;
+import com.example.querydsl.event.MembersBulkChangedEvent;
+import com.example.querydsl.support.ReplayingRebuild;
+import com.example.querydsl.support.Transactions;
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * Optional serving mode (member.snapshot.enabled) answering member searches from memory.
+ * (memberId, username, age, team) are kept column-wise in direct ByteBuffers, outside the GC'd heap;
+ * the team column holds dictionary codes whose (teamId, teamName) entries are on-heap, one per team.
+ * Built by streaming the table once the application is ready, patched from committed Member/Team
+ * changes and periodically reconciled; changes arriving during a (re)build are replayed onto the new
+ * snapshot before it is swapped in ({@link ReplayingRebuild}). A bulk update carries no values, so it marks the snapshot stale instead:
+ * searches go to the database until a rebuild, started in the background, swaps in fresh columns.
+ * Rows come back in snapshot order (insertion order), not in any database order. Searches scan in chunks,
+ * holding the read lock for one chunk at a time so committing writers are not held up behind a full scan;
+ * like a count query and a page query against the database, a scan may see changes committed while it runs.
+ */
+@Slf4j
+@Component
+public class MemberColumnarSnapshot {
+
+    private static final int SCAN_CHUNK_ROWS = 4096;
+    private static final int SCAN_ATTEMPTS = 3;
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyTransaction;
+    private final AsyncTaskExecutor taskExecutor;
+    private final boolean enabled;
+
+    private final StampedLock lock = new StampedLock();
+    // patches and the rebuild swap take the write lock; searches hold read stamps on the same lock
+    private final ReplayingRebuild<Columns> columns = new ReplayingRebuild<>(lock.asWriteLock(), null);
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    public MemberColumnarSnapshot(JPAQueryFactory queryFactory,
+                                  PlatformTransactionManager transactionManager,
+                                  AsyncTaskExecutor taskExecutor,
+                                  @Value("${member.snapshot.enabled:false}") boolean enabled) {
+        this.queryFactory = queryFactory;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Pattern filters are left to the username index, and a read-write transaction may search
+     * its own uncommitted rows, which only the database has.
+     */
+    public boolean canServe(MemberSearchCondition condition) {
+        Columns current = columns.current();
+        return enabled && current != null && !current.stale
+                && !UsernameNgramIndex.applies(condition)
+                && !Transactions.inReadWriteTransaction();
+    }
+
+    public List<MemberTeamDto> fetchPage(MemberSearchCondition condition, long offset, int limit) {
+        List<MemberTeamDto> result = new ArrayList<>(Math.min(limit, 1024));
+        scan(condition, new Scan(offset, limit, result));
+        return result;
+    }
+
+    public long fetchCount(MemberSearchCondition condition) {
+        return scan(condition, new Scan(0, 0, null));
+    }
+
+    /**
+     * Rows keep their position between chunks, except across a compaction or a rebuild swap, which restart
+     * the scan; the last attempt holds the read lock throughout, so a scan always finishes.
+     */
+    private long scan(MemberSearchCondition condition, Scan scan) {
+        for (int attempt = 1; ; attempt++) {
+            boolean chunked = attempt < SCAN_ATTEMPTS;
+            scan.reset();
+            long stamp = lock.readLock();
+            try {
+                Columns scanned = columns.current();
+                int compactions = scanned.compactions;
+                Filter filter = new Filter(condition, scanned);
+                boolean moved = false;
+                for (int row = 0; !scan.done && !moved && row < scanned.rows; ) {
+                    int end = chunked ? (int) Math.min((long) row + SCAN_CHUNK_ROWS, scanned.rows) : scanned.rows;
+                    scanned.scan(filter, row, end, scan);
+                    row = end;
+                    if (chunked && !scan.done) {
+                        lock.unlockRead(stamp);
+                        stamp = lock.readLock();
+                        moved = columns.current() != scanned || scanned.compactions != compactions;
+                    }
+                }
+                if (!moved) {
+                    return scan.matched;
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${member.snapshot.reconcile-interval:PT5M}",
+            initialDelayString = "${member.snapshot.reconcile-interval:PT5M}")
+    public void reconcile() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Streams the table into fresh columns; patches from changes committed meanwhile are queued and
+     * replayed on top, which is safe because every patch is an upsert or delete by id.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        Columns fresh = columns.rebuild(this::load);
+        log.info("snapshot of {} members built in {} ms", fresh.live, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Columns load() {
+        Columns fresh = new Columns();
+        readOnlyTransaction.execute(status -> {
+            // every team gets a code up front, so later member changes never need to look a team name up
+            for (Tuple row : queryFactory.select(team.id, team.name).from(team).orderBy(team.id.asc()).fetch()) {
+                fresh.defineTeam(row.get(team.id), row.get(team.name));
+            }
+            try (CloseableIterator<Tuple> rows = queryFactory
+                    .select(member.id, member.username, member.age, team.id, team.name)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .orderBy(member.id.asc())
+                    .setHint(QueryHints.FETCH_SIZE, 1000)
+                    .iterate()) {
+                while (rows.hasNext()) {
+                    fresh.upsert(rows.next());
+                }
+            }
+            return null;
+        });
+        return fresh;
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isFor(Team.class)) {
+            if (event.getType() != EntityChangeType.DELETE) {
+                Long teamId = (Long) event.getId();
+                String name = (String) event.getValue("name");
+                patch(target -> target.defineTeam(teamId, name));
+            }
+        } else if (event.isFor(Member.class)) {
+            Long id = (Long) event.getId();
+            if (event.getType() == EntityChangeType.DELETE) {
+                patch(target -> target.delete(id));
+                return;
+            }
+            Team memberTeam = (Team) event.getValue("team");
+            Long teamId = Team.idOf(memberTeam);
+            // only used for a team the snapshot has no code for yet; an uninitialized proxy has no name to give
+            String teamName = memberTeam != null && Hibernate.isInitialized(memberTeam) ? memberTeam.getName() : null;
+            String username = (String) event.getValue("username");
+            Integer age = (Integer) event.getValue("age");
+            patch(target -> target.upsert(id, username, age, teamId, teamName));
+        }
+    }
+
+    /**
+     * Bulk deletes drop the ids. Bulk updates carry no values, and re-reading the rows here would add a query
+     * to every committing chunk and could land after a newer single-row change; the snapshot goes stale instead
+     * (a rebuild still streaming keeps it stale through the replay) and a background rebuild is queued.
+     */
+    @EventListener
+    public void onMembersBulkChanged(MembersBulkChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getType() == EntityChangeType.DELETE) {
+            patch(target -> event.getMemberIds().forEach(target::delete));
+            return;
+        }
+        patch(target -> target.stale = true);
+        // one queued rebuild covers every bulk chunk committed before it starts
+        if (rebuildQueued.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                rebuildQueued.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("snapshot rebuild after a bulk update failed; searches use the database until the next reconcile", e);
+                }
+            });
+        }
+    }
+
+    private void patch(Consumer<Columns> patch) {
+        columns.apply(patch);
+    }
+
+    /**
+     * Progress of one search: rows matched so far and the page collected (none when only counting).
+     */
+    private static final class Scan {
+
+        private final long offset;
+        private final int limit;
+        private final List<MemberTeamDto> out;
+        private long matched;
+        private boolean done;
+
+        private Scan(long offset, int limit, List<MemberTeamDto> out) {
+            this.offset = offset;
+            this.limit = limit;
+            this.out = out;
+        }
+
+        private void reset() {
+            matched = 0;
+            done = false;
+            if (out != null) {
+                out.clear();
+            }
+        }
+    }
+
+    /**
+     * A condition resolved against one snapshot: team name to dictionary codes, username to UTF-8 bytes.
+     */
+    private static final class Filter {
+
+        private final byte[] username;
+        private final boolean[] teamCodes;
+        private final boolean noMatch;
+        private final int ageGoe;
+        private final int ageLoe;
+
+        private Filter(MemberSearchCondition condition, Columns columns) {
+            this.username = hasText(condition.getUsername()) ? condition.getUsername().getBytes(StandardCharsets.UTF_8) : null;
+            this.teamCodes = hasText(condition.getTeamName()) ? columns.codesNamed(condition.getTeamName()) : null;
+            this.noMatch = teamCodes != null && !contains(teamCodes);
+            this.ageGoe = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+            this.ageLoe = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+        }
+
+        private static boolean contains(boolean[] codes) {
+            for (boolean code : codes) {
+                if (code) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Fixed-width columns indexed by row, plus a byte heap for usernames. Deleted rows are tombstoned and
+     * changed usernames are appended to the heap; a compaction drops both once tombstones outnumber live rows
+     * or dead heap bytes outnumber live ones.
+     */
+    private static final class Columns {
+
+        private static final int INITIAL_ROWS = 1024;
+        private static final int NO_TEAM = -1;
+
+        private int capacity = INITIAL_ROWS;
+        private int rows;
+        private int live;
+        private ByteBuffer ids = ByteBuffer.allocateDirect(INITIAL_ROWS * Long.BYTES);
+        private ByteBuffer ages = ByteBuffer.allocateDirect(INITIAL_ROWS * Integer.BYTES);
+        private ByteBuffer teamCodes = ByteBuffer.allocateDirect(INITIAL_ROWS * Integer.BYTES);
+        private ByteBuffer usernameOffsets = ByteBuffer.allocateDirect(INITIAL_ROWS * Integer.BYTES);
+        // username byte length, -1 for a null username, -2 for a deleted row
+        private ByteBuffer usernameLengths = ByteBuffer.allocateDirect(INITIAL_ROWS * Integer.BYTES);
+        private ByteBuffer usernames = ByteBuffer.allocateDirect(INITIAL_ROWS * 16);
+        private int usernamesEnd;
+        private int deadUsernameBytes;
+        private int compactions;
+        // a bulk update changed rows in ways the snapshot cannot patch
+        private volatile boolean stale;
+
+        private final RowIndex rowById = new RowIndex();
+        private final List<Long> teamIdByCode = new ArrayList<>();
+        private final List<String> teamNameByCode = new ArrayList<>();
+        private final Map<Long, Integer> codeByTeamId = new HashMap<>();
+
+        /**
+         * Scans rows [from, to) into the search, marking it done once its page is full.
+         */
+        private void scan(Filter filter, int from, int to, Scan scan) {
+            if (filter.noMatch) {
+                scan.done = true;
+                return;
+            }
+            for (int row = from; row < to; row++) {
+                int length = usernameLengths.getInt(row * Integer.BYTES);
+                if (length == -2) {
+                    continue;
+                }
+                int age = ages.getInt(row * Integer.BYTES);
+                if (age < filter.ageGoe || age > filter.ageLoe) {
+                    continue;
+                }
+                int code = teamCodes.getInt(row * Integer.BYTES);
+                if (filter.teamCodes != null && (code == NO_TEAM || code >= filter.teamCodes.length || !filter.teamCodes[code])) {
+                    continue;
+                }
+                if (filter.username != null && !usernameEquals(row, length, filter.username)) {
+                    continue;
+                }
+                if (scan.out != null && scan.matched >= scan.offset) {
+                    scan.out.add(toDto(row, length, age, code));
+                    if (scan.out.size() == scan.limit) {
+                        scan.matched++;
+                        scan.done = true;
+                        return;
+                    }
+                }
+                scan.matched++;
+            }
+        }
+
+        private boolean usernameEquals(int row, int length, byte[] username) {
+            if (length != username.length) {
+                return false;
+            }
+            int offset = usernameOffsets.getInt(row * Integer.BYTES);
+            for (int i = 0; i < length; i++) {
+                if (usernames.get(offset + i) != username[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private MemberTeamDto toDto(int row, int length, int age, int code) {
+            String username = null;
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                ByteBuffer source = usernames.duplicate();
+                source.position(usernameOffsets.getInt(row * Integer.BYTES));
+                source.get(bytes);
+                username = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new MemberTeamDto(
+                    ids.getLong(row * Long.BYTES),
+                    username,
+                    age,
+                    code == NO_TEAM ? null : teamIdByCode.get(code),
+                    code == NO_TEAM ? null : teamNameByCode.get(code));
+        }
+
+        private boolean[] codesNamed(String teamName) {
+            boolean[] codes = new boolean[teamNameByCode.size()];
+            for (int code = 0; code < codes.length; code++) {
+                codes[code] = teamName.equals(teamNameByCode.get(code));
+            }
+            return codes;
+        }
+
+        private void upsert(Tuple row) {
+            upsert(row.get(member.id), row.get(member.username), row.get(member.age), row.get(team.id), row.get(team.name));
+        }
+
+        private void upsert(Long id, String username, int age, Long teamId, String teamName) {
+            int row = rowById.get(id);
+            int oldLength = -1;
+            if (row < 0) {
+                ensureCapacity(rows + 1);
+                row = rows++;
+                live++;
+                ids.putLong(row * Long.BYTES, id);
+                rowById.put(id, row);
+            } else {
+                oldLength = usernameLengths.getInt(row * Integer.BYTES);
+            }
+            ages.putInt(row * Integer.BYTES, age);
+            teamCodes.putInt(row * Integer.BYTES, teamId == null ? NO_TEAM : code(teamId, teamName));
+            byte[] bytes = username == null ? null : username.getBytes(StandardCharsets.UTF_8);
+            if (bytes != null && oldLength >= 0 && usernameEquals(row, oldLength, bytes)) {
+                return;
+            }
+            if (oldLength > 0) {
+                deadUsernameBytes += oldLength;
+            }
+            if (bytes == null) {
+                usernameLengths.putInt(row * Integer.BYTES, -1);
+            } else {
+                ensureUsernameCapacity(usernamesEnd + bytes.length);
+                ByteBuffer target = usernames.duplicate();
+                target.position(usernamesEnd);
+                target.put(bytes);
+                usernameOffsets.putInt(row * Integer.BYTES, usernamesEnd);
+                usernameLengths.putInt(row * Integer.BYTES, bytes.length);
+                usernamesEnd += bytes.length;
+            }
+            compactIfWasteful();
+        }
+
+        private void delete(Long id) {
+            int row = rowById.remove(id);
+            if (row < 0) {
+                return;
+            }
+            int length = usernameLengths.getInt(row * Integer.BYTES);
+            if (length > 0) {
+                deadUsernameBytes += length;
+            }
+            usernameLengths.putInt(row * Integer.BYTES, -2);
+            live--;
+            compactIfWasteful();
+        }
+
+        private void compactIfWasteful() {
+            boolean tombstones = rows > INITIAL_ROWS && rows - live > live;
+            boolean deadBytes = usernamesEnd > INITIAL_ROWS * 16 && deadUsernameBytes > usernamesEnd - deadUsernameBytes;
+            if (tombstones || deadBytes) {
+                compact();
+            }
+        }
+
+        private void defineTeam(Long teamId, String name) {
+            teamNameByCode.set(code(teamId, name), name);
+        }
+
+        private int code(Long teamId, String teamName) {
+            Integer code = codeByTeamId.get(teamId);
+            if (code == null) {
+                code = teamIdByCode.size();
+                teamIdByCode.add(teamId);
+                teamNameByCode.add(teamName);
+                codeByTeamId.put(teamId, code);
+            }
+            return code;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= capacity) {
+                return;
+            }
+            int grown = Math.max(required, capacity * 2);
+            ids = grow(ids, rows * Long.BYTES, grown * Long.BYTES);
+            ages = grow(ages, rows * Integer.BYTES, grown * Integer.BYTES);
+            teamCodes = grow(teamCodes, rows * Integer.BYTES, grown * Integer.BYTES);
+            usernameOffsets = grow(usernameOffsets, rows * Integer.BYTES, grown * Integer.BYTES);
+            usernameLengths = grow(usernameLengths, rows * Integer.BYTES, grown * Integer.BYTES);
+            capacity = grown;
+        }
+
+        private void ensureUsernameCapacity(int required) {
+            if (required > usernames.capacity()) {
+                usernames = grow(usernames, usernamesEnd, Math.max(required, usernames.capacity() * 2));
+            }
+        }
+
+        private static ByteBuffer grow(ByteBuffer buffer, int usedBytes, int newBytes) {
+            ByteBuffer source = buffer.duplicate();
+            source.position(0).limit(usedBytes);
+            ByteBuffer grown = ByteBuffer.allocateDirect(newBytes);
+            grown.put(source);
+            grown.clear();
+            return grown;
+        }
+
+        /**
+         * Rewrites the live rows (and their current usernames) into fresh columns, in place of this one's buffers.
+         */
+        private void compact() {
+            Columns compacted = new Columns();
+            compacted.teamIdByCode.addAll(teamIdByCode);
+            compacted.teamNameByCode.addAll(teamNameByCode);
+            compacted.codeByTeamId.putAll(codeByTeamId);
+            for (int row = 0; row < rows; row++) {
+                int length = usernameLengths.getInt(row * Integer.BYTES);
+                if (length == -2) {
+                    continue;
+                }
+                int code = teamCodes.getInt(row * Integer.BYTES);
+                MemberTeamDto dto = toDto(row, length, ages.getInt(row * Integer.BYTES), code);
+                compacted.upsert(dto.getMemberId(), dto.getUsername(), dto.getAge(), dto.getTeamId(), dto.getTeamName());
+            }
+            capacity = compacted.capacity;
+            rows = compacted.rows;
+            live = compacted.live;
+            ids = compacted.ids;
+            ages = compacted.ages;
+            teamCodes = compacted.teamCodes;
+            usernameOffsets = compacted.usernameOffsets;
+            usernameLengths = compacted.usernameLengths;
+            usernames = compacted.usernames;
+            usernamesEnd = compacted.usernamesEnd;
+            deadUsernameBytes = 0;
+            compactions++;
+            rowById.replaceWith(compacted.rowById);
+        }
+    }
+
+    /**
+     * Open-addressing long -> row map on two primitive arrays, so locating a row allocates nothing.
+     */
+    private static final class RowIndex {
+
+        private static final long EMPTY = Long.MIN_VALUE;
+        private static final long REMOVED = Long.MIN_VALUE + 1;
+
+        private long[] keys = newKeys(1024);
+        private int[] values = new int[1024];
+        private int used;
+
+        private int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                if (keys[slot] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        private void put(long key, int value) {
+            if ((used + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int free = -1;
+            int slot = hash(key) & mask;
+            for (; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    values[slot] = value;
+                    return;
+                }
+                if (keys[slot] == REMOVED && free < 0) {
+                    free = slot;
+                }
+            }
+            if (free < 0) {
+                free = slot;
+                used++;
+            }
+            keys[free] = key;
+            values[free] = value;
+        }
+
+        private int remove(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    keys[slot] = REMOVED;
+                    return values[slot];
+                }
+                if (keys[slot] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        private void replaceWith(RowIndex other) {
+            keys = other.keys;
+            values = other.values;
+            used = other.used;
+        }
+
+        private void rehash(int size) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(size);
+            values = new int[size];
+            used = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY && oldKeys[slot] != REMOVED) {
+                    put(oldKeys[slot], oldValues[slot]);
+                }
+            }
+        }
+
+        private static long[] newKeys(int size) {
+            long[] keys = new long[size];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
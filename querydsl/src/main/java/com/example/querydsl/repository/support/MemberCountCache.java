@@ -0,0 +1,127 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.event.EntityChangeEvent;
+import com.example.querydsl.event.MembersBulkChangedEvent;
+import com.example.querydsl.support.Transactions;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Search totals keyed by the normalized condition, dropped whenever a Member or Team change commits.
+ * A count can start before a commit and finish after its invalidation, so every total is tagged with the
+ * generations current when its load started: a Member change starts a new generation for all totals, a Team
+ * change one for totals filtered by team name, and a total from an older generation is never stored or served.
+ */
+@Component
+public class MemberCountCache {
+
+    private final Cache<MemberSearchCondition, Count> counts;
+    private final AtomicLong memberGeneration = new AtomicLong();
+    private final AtomicLong teamGeneration = new AtomicLong();
+
+    public MemberCountCache(@Value("${member.count-cache.ttl:PT1M}") Duration ttl,
+                            @Value("${member.count-cache.max-size:10000}") long maxSize) {
+        this.counts = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public long get(MemberSearchCondition condition, LongSupplier loader) {
+        return get(condition, stamp(), loader);
+    }
+
+    /**
+     * For a count that was started before this call (e.g. on another thread): the stamp taken before it
+     * started decides whether its result may still be cached.
+     */
+    public long get(MemberSearchCondition condition, Stamp started, LongSupplier loader) {
+        // a read-write transaction may count its own uncommitted rows, which must not leak to other requests
+        if (Transactions.inReadWriteTransaction()) {
+            return loader.getAsLong();
+        }
+        MemberSearchCondition key = condition.normalized();
+        Count cached = counts.getIfPresent(key);
+        if (cached != null && cached.isCurrent(key, memberGeneration.get(), teamGeneration.get())) {
+            return cached.value;
+        }
+        long value = loader.getAsLong();
+        Count loaded = new Count(value, started.memberGeneration, started.teamGeneration);
+        // an invalidation racing this put leaves older generations on the entry, which are never served
+        if (loaded.isCurrent(key, memberGeneration.get(), teamGeneration.get())) {
+            counts.put(key, loaded);
+        }
+        return value;
+    }
+
+    public Stamp stamp() {
+        return new Stamp(memberGeneration.get(), teamGeneration.get());
+    }
+
+    public Long getIfPresent(MemberSearchCondition condition) {
+        if (Transactions.inReadWriteTransaction()) {
+            return null;
+        }
+        MemberSearchCondition key = condition.normalized();
+        Count cached = counts.getIfPresent(key);
+        return cached != null && cached.isCurrent(key, memberGeneration.get(), teamGeneration.get()) ? cached.value : null;
+    }
+
+    public void invalidateAll() {
+        memberGeneration.incrementAndGet();
+        counts.invalidateAll();
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Member.class)) {
+            invalidateAll();
+        } else if (event.isFor(Team.class)) {
+            teamGeneration.incrementAndGet();
+            counts.asMap().keySet().removeIf(condition -> condition.getTeamName() != null);
+        }
+    }
+
+    @EventListener
+    public void onMembersBulkChanged(MembersBulkChangedEvent event) {
+        invalidateAll();
+    }
+
+    public static final class Stamp {
+
+        private final long memberGeneration;
+        private final long teamGeneration;
+
+        private Stamp(long memberGeneration, long teamGeneration) {
+            this.memberGeneration = memberGeneration;
+            this.teamGeneration = teamGeneration;
+        }
+    }
+
+    private static final class Count {
+
+        private final long value;
+        private final long memberGeneration;
+        private final long teamGeneration;
+
+        private Count(long value, long memberGeneration, long teamGeneration) {
+            this.value = value;
+            this.memberGeneration = memberGeneration;
+            this.teamGeneration = teamGeneration;
+        }
+
+        private boolean isCurrent(MemberSearchCondition key, long members, long teams) {
+            return memberGeneration == members && (key.getTeamName() == null || teamGeneration == teams);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.dto.QMemberTeamDto;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * Builds the dynamic member search queries shared by MemberJpaRepository and MemberRepositoryImpl.
+ * Plain filter searches and counts go through the precompiled {@link MemberSearchTemplates} instead.
+ */
+public final class MemberSearchQueries {
+
+    private MemberSearchQueries() {
+    }
+
+    public static BooleanBuilder searchCondition(MemberSearchCondition condition) {
+        BooleanBuilder booleanBuilder = new BooleanBuilder();
+        if (hasText(condition.getUsername())) {
+            booleanBuilder.and(member.username.eq(condition.getUsername()));
+        }
+        if (hasText(condition.getTeamName())) {
+            booleanBuilder.and(team.name.eq(condition.getTeamName()));
+        }
+        if (condition.getAgeGoe() != null) {
+            booleanBuilder.and(member.age.goe(condition.getAgeGoe()));
+        }
+        if (condition.getAgeLoe() != null) {
+            booleanBuilder.and(member.age.loe(condition.getAgeLoe()));
+        }
+        return booleanBuilder;
+    }
+
+    public static QMemberTeamDto memberTeamDto() {
+        return new QMemberTeamDto(
+                member.id.as("memberId"),
+                member.username,
+                member.age,
+                team.id.as("teamId"),
+                team.name.as("teamName")
+        );
+    }
+
+    /**
+     * Content query; the projection reads team.name, so team is always (left) joined here.
+     */
+    public static JPAQuery<MemberTeamDto> selectMemberTeam(JPAQueryFactory queryFactory, MemberSearchCondition condition) {
+        return queryFactory
+                .select(memberTeamDto())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(searchCondition(condition));
+    }
+}
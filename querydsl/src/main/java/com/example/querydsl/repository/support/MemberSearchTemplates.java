@@ -0,0 +1,313 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * Precompiled JPQL for the member search, one per condition "shape" (which of the four filters are set).
+ * Filter values are Querydsl {@link Param}s, so a shape is serialized once and each request only binds values.
+ * Username pattern filters resolve to id lists that differ per request, so those searches are built dynamically.
+ * With member.snapshot.enabled, the other searches are answered by {@link MemberColumnarSnapshot} instead;
+ * with member.age-index.enabled, age range searches resolve their totals and page ids through {@link MemberAgeIndex}.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberSearchTemplates {
+
+    private static final int HAS_USERNAME = 1;
+    private static final int HAS_TEAM_NAME = 1 << 1;
+    private static final int HAS_AGE_GOE = 1 << 2;
+    private static final int HAS_AGE_LOE = 1 << 3;
+    private static final int SHAPES = 1 << 4;
+
+    private static final Param<String> USERNAME = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+
+    private final EntityManager em;
+    private final UsernameNgramIndex usernameIndex;
+    private final MemberColumnarSnapshot snapshot;
+    private final MemberAgeIndex ageIndex;
+
+    private final AtomicReferenceArray<CompiledQuery<MemberTeamDto>> contentQueries = new AtomicReferenceArray<>(SHAPES);
+    private final AtomicReferenceArray<CompiledQuery<Long>> countQueries = new AtomicReferenceArray<>(SHAPES);
+
+    public List<MemberTeamDto> fetchAll(MemberSearchCondition condition) {
+        if (snapshot.canServe(condition)) {
+            return snapshot.fetchPage(condition, 0, Integer.MAX_VALUE);
+        }
+        if (ageIndex.canServe(condition)) {
+            long[] ids = ageIndex.pageIds(condition, 0, ageIndex.count(condition));
+            if (ids != null) {
+                return contentByIds(condition, ids);
+            }
+        }
+        if (UsernameNgramIndex.applies(condition)) {
+            return patternContent(condition).fetch();
+        }
+        return content(shapeOf(condition)).createQuery(em, bind(condition)).getResultList();
+    }
+
+    public List<MemberTeamDto> fetchPage(MemberSearchCondition condition, long offset, int limit) {
+        if (snapshot.canServe(condition)) {
+            return snapshot.fetchPage(condition, offset, limit);
+        }
+        if (ageIndex.canServe(condition)) {
+            long[] ids = ageIndex.pageIds(condition, offset, limit);
+            if (ids != null) {
+                return contentByIds(condition, ids);
+            }
+        }
+        if (UsernameNgramIndex.applies(condition)) {
+            return patternContent(condition).offset(offset).limit(limit).fetch();
+        }
+        return content(shapeOf(condition)).createQuery(em, bind(condition))
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * One extra row tells whether a next slice exists. When the age index serves, the extra row is
+     * counted on its ids, since loading the rows may leave out one that changed since the index was read.
+     */
+    public Slice<MemberTeamDto> fetchSlice(MemberSearchCondition condition, Pageable pageable) {
+        int size = pageable.getPageSize();
+        if (!snapshot.canServe(condition) && ageIndex.canServe(condition)) {
+            long[] ids = ageIndex.pageIds(condition, pageable.getOffset(), size + 1);
+            if (ids != null) {
+                boolean hasNext = ids.length > size;
+                return new SliceImpl<>(contentByIds(condition, hasNext ? Arrays.copyOf(ids, size) : ids), pageable, hasNext);
+            }
+        }
+        List<MemberTeamDto> content = fetchPage(condition, pageable.getOffset(), size + 1);
+        boolean hasNext = content.size() > size;
+        return new SliceImpl<>(hasNext ? content.subList(0, size) : content, pageable, hasNext);
+    }
+
+    public long fetchCount(MemberSearchCondition condition) {
+        return fetchCount(em, condition);
+    }
+
+    public long fetchCount(EntityManager entityManager, MemberSearchCondition condition) {
+        if (snapshot.canServe(condition)) {
+            return snapshot.fetchCount(condition);
+        }
+        if (ageIndex.canServe(condition)) {
+            return ageIndex.count(condition);
+        }
+        if (UsernameNgramIndex.applies(condition)) {
+            JPAQuery<Long> query = new JPAQuery<Void>(entityManager)
+                    .select(member.id.count())
+                    .from(member);
+            if (hasText(condition.getTeamName())) {
+                query.join(member.team, team);
+            }
+            return query.where(MemberSearchQueries.searchCondition(condition), usernameIndex.filter(condition)).fetchOne();
+        }
+        return count(shapeOf(condition)).createQuery(entityManager, bind(condition)).getSingleResult();
+    }
+
+    /**
+     * Loads the rows of the given ids in their order. The search predicates are applied again,
+     * so a row changed since the index was read is left out rather than returned unfiltered.
+     */
+    private List<MemberTeamDto> contentByIds(MemberSearchCondition condition, long[] ids) {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        List<Long> idList = new ArrayList<>(ids.length);
+        Map<Long, Integer> positions = new HashMap<>();
+        for (long id : ids) {
+            positions.put(id, idList.size());
+            idList.add(id);
+        }
+        List<MemberTeamDto> content = new JPAQuery<Void>(em)
+                .select(MemberSearchQueries.memberTeamDto())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.id.in(idList), MemberSearchQueries.searchCondition(condition))
+                .fetch();
+        content.sort(Comparator.comparing(dto -> positions.get(dto.getMemberId())));
+        return content;
+    }
+
+    private JPAQuery<MemberTeamDto> patternContent(MemberSearchCondition condition) {
+        return new JPAQuery<Void>(em)
+                .select(MemberSearchQueries.memberTeamDto())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MemberSearchQueries.searchCondition(condition), usernameIndex.filter(condition));
+    }
+
+    private static int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        if (hasText(condition.getUsername())) {
+            shape |= HAS_USERNAME;
+        }
+        if (hasText(condition.getTeamName())) {
+            shape |= HAS_TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= HAS_AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= HAS_AGE_LOE;
+        }
+        return shape;
+    }
+
+    private static Map<ParamExpression<?>, Object> bind(MemberSearchCondition condition) {
+        Map<ParamExpression<?>, Object> params = new HashMap<>();
+        if (hasText(condition.getUsername())) {
+            params.put(USERNAME, condition.getUsername());
+        }
+        if (hasText(condition.getTeamName())) {
+            params.put(TEAM_NAME, condition.getTeamName());
+        }
+        if (condition.getAgeGoe() != null) {
+            params.put(AGE_GOE, condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            params.put(AGE_LOE, condition.getAgeLoe());
+        }
+        return params;
+    }
+
+    private static BooleanBuilder shapeCondition(int shape) {
+        BooleanBuilder booleanBuilder = new BooleanBuilder();
+        if ((shape & HAS_USERNAME) != 0) {
+            booleanBuilder.and(member.username.eq(USERNAME));
+        }
+        if ((shape & HAS_TEAM_NAME) != 0) {
+            booleanBuilder.and(team.name.eq(TEAM_NAME));
+        }
+        if ((shape & HAS_AGE_GOE) != 0) {
+            booleanBuilder.and(member.age.goe(AGE_GOE));
+        }
+        if ((shape & HAS_AGE_LOE) != 0) {
+            booleanBuilder.and(member.age.loe(AGE_LOE));
+        }
+        return booleanBuilder;
+    }
+
+    private CompiledQuery<MemberTeamDto> content(int shape) {
+        CompiledQuery<MemberTeamDto> compiled = contentQueries.get(shape);
+        if (compiled == null) {
+            FactoryExpression<MemberTeamDto> projection = MemberSearchQueries.memberTeamDto();
+            QueryMetadata metadata = new JPAQuery<Void>()
+                    .select(projection)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(shapeCondition(shape))
+                    .getMetadata();
+            compiled = compile(metadata, projection);
+            contentQueries.compareAndSet(shape, null, compiled);
+        }
+        return compiled;
+    }
+
+    private CompiledQuery<Long> count(int shape) {
+        CompiledQuery<Long> compiled = countQueries.get(shape);
+        if (compiled == null) {
+            JPAQuery<Long> query = new JPAQuery<Void>()
+                    .select(member.id.count())
+                    .from(member);
+            if ((shape & HAS_TEAM_NAME) != 0) {
+                query.join(member.team, team);
+            }
+            compiled = compile(query.where(shapeCondition(shape)).getMetadata(), null);
+            countQueries.compareAndSet(shape, null, compiled);
+        }
+        return compiled;
+    }
+
+    private <T> CompiledQuery<T> compile(QueryMetadata metadata, FactoryExpression<T> projection) {
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+        serializer.serialize(metadata, false, null);
+        return new CompiledQuery<>(serializer.toString(), new HashMap<>(serializer.getConstantToLabel()), projection);
+    }
+
+    private static class CompiledQuery<T> {
+
+        private final String jpql;
+        private final Map<Object, String> constants;
+        private final FactoryExpression<T> projection;
+
+        private CompiledQuery(String jpql, Map<Object, String> constants, FactoryExpression<T> projection) {
+            this.jpql = jpql;
+            this.constants = constants;
+            this.projection = projection;
+        }
+
+        private BoundQuery<T> createQuery(EntityManager em, Map<ParamExpression<?>, Object> params) {
+            Query query = em.createQuery(jpql);
+            JPAUtil.setConstants(query, constants, params);
+            return new BoundQuery<>(query, projection);
+        }
+    }
+
+    private static class BoundQuery<T> {
+
+        private final Query query;
+        private final FactoryExpression<T> projection;
+
+        private BoundQuery(Query query, FactoryExpression<T> projection) {
+            this.query = query;
+            this.projection = projection;
+        }
+
+        private BoundQuery<T> setFirstResult(int firstResult) {
+            query.setFirstResult(firstResult);
+            return this;
+        }
+
+        private BoundQuery<T> setMaxResults(int maxResults) {
+            query.setMaxResults(maxResults);
+            return this;
+        }
+
+        private List<T> getResultList() {
+            List<?> rows = query.getResultList();
+            List<T> results = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                results.add(projection.newInstance((Object[]) row));
+            }
+            return results;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T getSingleResult() {
+            return (T) query.getSingleResult();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.querydsl.repository.support;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Lets another thread abort a running search. Interrupting the searching thread does not stop a JDBC statement,
+ * so the search registers a canceller for each statement source (its session, its concurrent count)
+ * and {@link #cancel()} runs them all.
+ */
+public class SearchCancellation {
+
+    private final List<Runnable> cancellers = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+
+    /**
+     * Fails fast once cancelled, so a search that has not started its statements yet never starts them.
+     */
+    public void register(Runnable canceller) {
+        cancellers.add(canceller);
+        if (cancelled) {
+            canceller.run();
+            throw new CancellationException("search cancelled");
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        for (Runnable canceller : cancellers) {
+            try {
+                canceller.run();
+            } catch (RuntimeException ignored) {
+                // the statement finished or its session closed in the meantime
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
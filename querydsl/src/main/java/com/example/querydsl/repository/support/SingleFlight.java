@@ -0,0 +1,118 @@
+package com.example.querydsl.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs one loader per key at a time: the first caller executes it on its own thread and every caller
+ * arriving while it runs waits (at most waitTimeout) for and shares the same result (or exception).
+ * With a positive reuse ttl, completed results are additionally served to later callers for that long.
+ * Calls and results are tagged with the generation they started in; {@link #invalidateAll()} starts a new one,
+ * so a load that began before an invalidation is neither joined nor reused afterwards.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Call<V>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<K, Result<V>> recent;
+    private final Duration waitTimeout;
+    private final AtomicLong generation = new AtomicLong();
+
+    public SingleFlight(Duration reuseTtl, long maxSize, Duration waitTimeout) {
+        this.recent = reuseTtl.isZero() || reuseTtl.isNegative() ? null : Caffeine.newBuilder()
+                .expireAfterWrite(reuseTtl)
+                .maximumSize(maxSize)
+                .build();
+        this.waitTimeout = waitTimeout;
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        long current = generation.get();
+        if (recent != null) {
+            Result<V> reused = recent.getIfPresent(key);
+            if (reused != null && reused.generation == current) {
+                return reused.value;
+            }
+        }
+
+        Call<V> call = new Call<>(current);
+        Call<V> leader = inFlight.compute(key, (k, running) -> running != null && running.generation == current ? running : call);
+        if (leader != call) {
+            return await(leader.future);
+        }
+        try {
+            V value = loader.get();
+            if (recent != null && value != null && generation.get() == current) {
+                // cache before leaving the in-flight map, so no caller falls into a gap between the two;
+                // an invalidation racing this put leaves a stale generation, which is never served
+                recent.put(key, new Result<>(value, current));
+            }
+            call.future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        if (recent != null) {
+            recent.invalidateAll();
+        }
+    }
+
+    private V await(CompletableFuture<V> leader) {
+        try {
+            return leader.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while waiting for a coalesced call");
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("coalesced call did not finish within " + waitTimeout);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static final class Call<V> {
+
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private final long generation;
+
+        private Call(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private static final class Result<V> {
+
+        private final V value;
+        private final long generation;
+
+        private Result(V value, long generation) {
+            this.value = value;
+            this.generation = generation;
+        }
+    }
+}
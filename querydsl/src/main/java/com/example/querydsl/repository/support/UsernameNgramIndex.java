@@ -0,0 +1,262 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.event.EntityChangeEvent;
+import com.example.querydsl.event.EntityChangeType;
+import com.example.querydsl.event.MembersBulkChangedEvent;
+import com.example.querydsl.support.Transactions;
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * Trigram inverted index over Member.username for the usernameContains/usernamePrefix filters.
+ * A pattern's trigram postings are intersected and the survivors checked against the indexed username,
+ * so the candidate ids are exact and go into member.id.in(...) next to the other search predicates.
+ * Patterns shorter than a trigram, more than max-candidates matches, an index still being built
+ * or a read-write transaction fall back to a LIKE on username. Built by streaming the table once the application is ready and
+ * kept current from committed Member changes; matching is case-sensitive, like the LIKE fallback.
+ * Off by default: it assumes this instance is the only writer, since only Hibernate commits in this JVM reach it.
+ * JDBC writes, other instances and migrations are never seen and make its answers stale until restart.
+ * Searches read the concurrent maps without locking, so they never wait for committing writers. Writers are serialized
+ * and add a member's new trigrams before dropping its old ones, so a member whose username keeps matching never drops
+ * out of a concurrent search; the final username check keeps every returned id exact.
+ */
+@Slf4j
+@Component
+public class UsernameNgramIndex {
+
+    private static final int N = 3;
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final int maxCandidates;
+
+    private final Lock writeLock = new ReentrantLock();
+    private final Map<Long, String> usernames = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private final Set<Long> removedDuringBuild = new HashSet<>();
+    private volatile boolean ready;
+
+    public UsernameNgramIndex(JPAQueryFactory queryFactory,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${member.username-index.enabled:false}") boolean enabled,
+                              @Value("${member.username-index.max-candidates:1000}") int maxCandidates) {
+        this.queryFactory = queryFactory;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+    }
+
+    public static boolean applies(MemberSearchCondition condition) {
+        return hasText(condition.getUsernameContains()) || hasText(condition.getUsernamePrefix());
+    }
+
+    /**
+     * Predicate for the username pattern filters of the condition; empty when it has none.
+     */
+    public BooleanBuilder filter(MemberSearchCondition condition) {
+        BooleanBuilder builder = new BooleanBuilder();
+        String contains = condition.getUsernameContains();
+        if (hasText(contains)) {
+            Optional<Set<Long>> ids = candidates(contains, String::contains);
+            builder.and(ids.isPresent() ? idIn(ids.get()) : member.username.contains(contains));
+        }
+        String prefix = condition.getUsernamePrefix();
+        if (hasText(prefix)) {
+            Optional<Set<Long>> ids = candidates(prefix, String::startsWith);
+            builder.and(ids.isPresent() ? idIn(ids.get()) : member.username.startsWith(prefix));
+        }
+        return builder;
+    }
+
+    private static BooleanBuilder idIn(Set<Long> ids) {
+        // an empty IN list is not valid SQL; ids are never null, so this matches nothing
+        return new BooleanBuilder(ids.isEmpty() ? member.id.isNull() : member.id.in(ids));
+    }
+
+    /**
+     * Exact ids whose username matches, or empty when the index cannot answer.
+     */
+    private Optional<Set<Long>> candidates(String pattern, BiPredicate<String, String> matches) {
+        // a read-write transaction may search its own uncommitted members, which only the table has
+        if (!ready || pattern.length() < N || Transactions.inReadWriteTransaction()) {
+            return Optional.empty();
+        }
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(pattern)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Optional.of(Collections.emptySet());
+            }
+            lists.add(ids);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        Set<Long> result = new HashSet<>();
+        for (Long id : lists.get(0)) {
+            if (!inAll(id, lists)) {
+                continue;
+            }
+            String username = usernames.get(id);
+            if (username != null && matches.test(username, pattern)) {
+                result.add(id);
+                if (result.size() > maxCandidates) {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.of(result);
+    }
+
+    private static boolean inAll(Long id, List<Set<Long>> lists) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + N <= text.length(); i++) {
+            grams.add(text.substring(i, i + N));
+        }
+        return grams;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long[] rows = new long[1];
+        readOnlyTransaction.execute(status -> {
+            try (CloseableIterator<Tuple> iterator = queryFactory
+                    .select(member.id, member.username)
+                    .from(member)
+                    .setHint(QueryHints.FETCH_SIZE, 1000)
+                    .iterate()) {
+                while (iterator.hasNext()) {
+                    Tuple row = iterator.next();
+                    addIfAbsent(row.get(member.id), row.get(member.username));
+                    rows[0]++;
+                }
+            }
+            return null;
+        });
+        writeLock.lock();
+        try {
+            removedDuringBuild.clear();
+            ready = true;
+        } finally {
+            writeLock.unlock();
+        }
+        log.info("indexed {} usernames in {} ms", rows[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Rows streamed by the build never override a change event that arrived first.
+     */
+    private void addIfAbsent(Long id, String username) {
+        writeLock.lock();
+        try {
+            if (!usernames.containsKey(id) && !removedDuringBuild.contains(id)) {
+                reindex(id, username);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (!enabled || !event.isFor(Member.class)) {
+            return;
+        }
+        Long id = (Long) event.getId();
+        writeLock.lock();
+        try {
+            if (event.getType() == EntityChangeType.DELETE) {
+                reindex(id, null);
+                if (!ready) {
+                    removedDuringBuild.add(id);
+                }
+            } else {
+                reindex(id, (String) event.getValue("username"));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @EventListener
+    public void onMembersBulkChanged(MembersBulkChangedEvent event) {
+        if (!enabled || event.getType() != EntityChangeType.DELETE) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            for (Long id : event.getMemberIds()) {
+                reindex(id, null);
+                if (!ready) {
+                    removedDuringBuild.add(id);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Points the id at its new username (none when deleted). Callers hold the write lock.
+     */
+    private void reindex(Long id, String username) {
+        Set<String> newGrams = username != null ? grams(username) : Collections.emptySet();
+        for (String gram : newGrams) {
+            postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        String old = username != null ? usernames.put(id, username) : usernames.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String gram : grams(old)) {
+            if (newGrams.contains(gram)) {
+                continue;
+            }
+            Set<Long> ids = postings.get(gram);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.querydsl.seed;
+
+import com.example.querydsl.entity.IdGeneration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads teams and members over parallel JDBC batch inserts, committing once per batch.
+ * Ids are preallocated a batch at a time from the entities' id sequence (H2 system_range), in the same
+ * pooled-lo blocks Hibernate uses (see {@link IdGeneration}), so seeded rows never collide with entity ids.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class MemberSeeder {
+
+    private static final String INSERT_TEAM = "insert into team (id, name) values (?, ?)";
+    private static final String INSERT_MEMBER = "insert into member (id, username, age, team_id) values (?, ?, ?, ?)";
+    private static final String NEXT_BLOCKS = "select next value for " + IdGeneration.SEQUENCE + " from system_range(1, ?)";
+
+    private final DataSource dataSource;
+    private final int threads;
+    private final int batchSize;
+
+    public MemberSeeder(DataSource dataSource,
+                        @Value("${seed.threads:4}") int threads,
+                        @Value("${seed.batch-size:1000}") int batchSize) {
+        this.dataSource = dataSource;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Member i is named "member i", is i % 100 years old and joins team i % teams (no team when teams is 0).
+     */
+    public void seed(long members, int teams) {
+        long start = System.nanoTime();
+        long[] teamIds = insertTeams(teams);
+
+        AtomicLong inserted = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long slice = (members + threads - 1) / threads;
+            for (long from = 0; from < members; from += slice) {
+                long sliceFrom = from;
+                long sliceTo = Math.min(members, from + slice);
+                futures.add(executor.submit(() -> {
+                    insertMembers(sliceFrom, sliceTo, teamIds, inserted, start);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("seeding interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("seeding failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("seeded {} members and {} teams in {} ms ({} rows/sec)",
+                members, teams, elapsedMillis, (members + teams) * 1000 / elapsedMillis);
+    }
+
+    private long[] insertTeams(int teams) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            long[] teamIds = nextIds(connection, teams);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_TEAM)) {
+                for (int i = 0; i < teams; i++) {
+                    statement.setLong(1, teamIds[i]);
+                    statement.setString(2, teamName(i));
+                    statement.addBatch();
+                    if ((i + 1) % batchSize == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+            connection.commit();
+            return teamIds;
+        } catch (SQLException e) {
+            throw new IllegalStateException("team seeding failed", e);
+        }
+    }
+
+    private void insertMembers(long from, long to, long[] teamIds, AtomicLong inserted, long start) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_MEMBER)) {
+            connection.setAutoCommit(false);
+            for (long batchFrom = from; batchFrom < to; batchFrom += batchSize) {
+                int size = (int) Math.min(batchSize, to - batchFrom);
+                long[] ids = nextIds(connection, size);
+                for (int j = 0; j < size; j++) {
+                    long i = batchFrom + j;
+                    statement.setLong(1, ids[j]);
+                    statement.setString(2, "member " + i);
+                    statement.setInt(3, (int) (i % 100));
+                    if (teamIds.length > 0) {
+                        statement.setLong(4, teamIds[(int) (i % teamIds.length)]);
+                    } else {
+                        statement.setNull(4, Types.BIGINT);
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+                reportProgress(inserted.addAndGet(size), size, start);
+            }
+        }
+    }
+
+    private void reportProgress(long total, int added, long start) {
+        long step = 1_000_000;
+        if (total / step != (total - added) / step) {
+            long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            log.info("seeded {} members ({} rows/sec)", total, total * 1000 / elapsedMillis);
+        }
+    }
+
+    private long[] nextIds(Connection connection, int count) throws SQLException {
+        long[] ids = new long[count];
+        if (count == 0) {
+            return ids;
+        }
+        int blockSize = IdGeneration.ALLOCATION_SIZE;
+        try (PreparedStatement statement = connection.prepareStatement(NEXT_BLOCKS)) {
+            statement.setInt(1, (count + blockSize - 1) / blockSize);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int i = 0;
+                while (resultSet.next()) {
+                    // each sequence value v reserves [v, v + blockSize); the unused tail of the last block is skipped
+                    long blockStart = resultSet.getLong(1);
+                    for (int j = 0; j < blockSize && i < count; j++) {
+                        ids[i++] = blockStart + j;
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static String teamName(int i) {
+        return i < 26 ? "team" + (char) ('A' + i) : "team" + i;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.querydsl.service;
+
+import com.example.querydsl.dto.MemberImportResult;
+import lombok.Getter;
+
+/**
+ * A malformed line stopped an import; {@link #getCommitted()} reports the batches committed before it.
+ */
+@Getter
+public class MemberImportException extends IllegalArgumentException {
+
+    private final transient MemberImportResult committed;
+
+    public MemberImportException(String message, MemberImportResult committed, Throwable cause) {
+        super(message, cause);
+        this.committed = committed;
+    }
+}
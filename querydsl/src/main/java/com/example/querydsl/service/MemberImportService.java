@@ -0,0 +1,282 @@
+package com.example.querydsl.service;
+
+import com.example.querydsl.dto.MemberImportResult;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.TeamRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * Streams members out of a CSV (username,age,teamName) or NDJSON body and inserts them batch-size rows
+ * per transaction through Hibernate JDBC batching, clearing the persistence context after every batch,
+ * so memory stays bounded by one batch plus the team name -> id map.
+ * Unknown team names are created on first sight. Ids come from the entities' pooled sequence generator,
+ * so a batch costs a few sequence calls rather than one per row.
+ * A malformed line stops the import with a {@link MemberImportException}: batches committed before it
+ * are kept and reported, the rows of the pending batch are not inserted.
+ */
+@Slf4j
+@Service
+public class MemberImportService {
+
+    private static final String TEAM_MEMBERS_ROLE = Team.class.getName() + ".members";
+
+    private final EntityManager em;
+    private final TeamRepository teamRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter importedRows;
+    private final int batchSize;
+
+    public MemberImportService(EntityManager em,
+                               TeamRepository teamRepository,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${member.import.batch-size:500}") int batchSize) {
+        this.em = em;
+        this.teamRepository = teamRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.importedRows = Counter.builder("member.import.rows")
+                .description("members inserted by the import endpoint")
+                .register(meterRegistry);
+        this.batchSize = batchSize;
+    }
+
+    public MemberImportResult importCsv(Reader reader) {
+        return importMembers(reader, this::parseCsv);
+    }
+
+    public MemberImportResult importNdjson(Reader reader) {
+        return importMembers(reader, this::parseNdjson);
+    }
+
+    private MemberImportResult importMembers(Reader reader, Function<String, MemberRow> parser) {
+        long start = System.nanoTime();
+        Map<String, Long> teamIds = new HashMap<>();
+        List<MemberRow> batch = new ArrayList<>(batchSize);
+        long members = 0;
+        int teamsCreated = 0;
+
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (!hasText(line) || (lineNumber == 1 && isCsvHeader(line))) {
+                    continue;
+                }
+                try {
+                    batch.add(parser.apply(line));
+                } catch (RuntimeException e) {
+                    String error = "malformed member at line " + lineNumber + ": " + e.getMessage();
+                    MemberImportResult committed = new MemberImportResult(members, teamsCreated,
+                            (System.nanoTime() - start) / 1_000_000, error);
+                    log.warn("import stopped after {} members: {}", members, error);
+                    throw new MemberImportException(error, committed, e);
+                }
+                if (batch.size() == batchSize) {
+                    teamsCreated += insertBatch(batch, teamIds);
+                    members += batch.size();
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!batch.isEmpty()) {
+            teamsCreated += insertBatch(batch, teamIds);
+            members += batch.size();
+        }
+
+        MemberImportResult result = new MemberImportResult(members, teamsCreated, (System.nanoTime() - start) / 1_000_000);
+        log.info("imported {} members and created {} teams in {} ms ({} rows/sec)",
+                result.getMembers(), result.getTeamsCreated(), result.getElapsedMillis(), result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * Inserts one batch in its own transaction and returns the number of teams it created.
+     * New team ids only enter the shared map once the batch has committed.
+     */
+    private int insertBatch(List<MemberRow> batch, Map<String, Long> teamIds) {
+        Map<String, Long> createdTeams = transactionTemplate.execute(status -> {
+            Map<String, Long> batchTeamIds = resolveTeams(batch, teamIds);
+            Map<String, Long> created = new HashMap<>(batchTeamIds);
+            created.keySet().removeAll(teamIds.keySet());
+
+            for (MemberRow row : batch) {
+                Member member = new Member(row.username, row.age);
+                if (row.teamName != null) {
+                    // set the owning side only; adding to a proxy's members would load the collection
+                    member.setTeam(em.getReference(Team.class, batchTeamIds.get(row.teamName)));
+                }
+                em.persist(member);
+            }
+            em.flush();
+            em.clear();
+            return created;
+        });
+        teamIds.putAll(createdTeams);
+        evictTeamMembers(batch, teamIds);
+        importedRows.increment(batch.size());
+        return createdTeams.size();
+    }
+
+    private Map<String, Long> resolveTeams(List<MemberRow> batch, Map<String, Long> teamIds) {
+        Map<String, Long> resolved = new HashMap<>();
+        Set<String> unknown = new LinkedHashSet<>();
+        for (MemberRow row : batch) {
+            if (row.teamName == null) {
+                continue;
+            }
+            Long teamId = teamIds.get(row.teamName);
+            if (teamId != null) {
+                resolved.put(row.teamName, teamId);
+            } else {
+                unknown.add(row.teamName);
+            }
+        }
+        for (Iterator<String> names = unknown.iterator(); names.hasNext(); ) {
+            String name = names.next();
+            // cacheable query: names seen by earlier imports are answered from the query cache
+            Optional<Team> existing = teamRepository.findFirstByNameOrderByIdAsc(name);
+            if (existing.isPresent()) {
+                names.remove();
+                resolved.put(name, existing.get().getId());
+                teamIds.put(name, existing.get().getId());
+            }
+        }
+        for (String name : unknown) {
+            Team created = new Team(name);
+            em.persist(created);
+            resolved.put(name, created.getId());
+        }
+        return resolved;
+    }
+
+    /**
+     * Inserting the owning side does not touch the cached inverse Team.members collections.
+     */
+    private void evictTeamMembers(List<MemberRow> batch, Map<String, Long> teamIds) {
+        Cache cache = em.getEntityManagerFactory().getCache().unwrap(Cache.class);
+        Set<String> teamNames = new LinkedHashSet<>();
+        for (MemberRow row : batch) {
+            if (row.teamName != null && teamNames.add(row.teamName)) {
+                cache.evictCollectionData(TEAM_MEMBERS_ROLE, teamIds.get(row.teamName));
+            }
+        }
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.trim().toLowerCase().startsWith("username,");
+    }
+
+    private MemberRow parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() < 2 || fields.size() > 3) {
+            throw new IllegalArgumentException("expected username,age[,teamName] but got " + fields.size() + " fields");
+        }
+        return new MemberRow(
+                fields.get(0),
+                Integer.parseInt(fields.get(1).trim()),
+                fields.size() == 3 ? fields.get(2) : null);
+    }
+
+    /**
+     * Single-line RFC 4180 fields: commas separate, double quotes enclose, "" escapes a quote.
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quote");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private MemberRow parseNdjson(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getOriginalMessage(), e);
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("expected a JSON object");
+        }
+        // asInt() would read a missing, null or non-numeric age as 0
+        JsonNode age = node.path("age");
+        if (!age.isIntegralNumber() || !age.canConvertToInt()) {
+            throw new IllegalArgumentException("expected an integer age but got " + age);
+        }
+        return new MemberRow(
+                node.path("username").textValue(),
+                age.intValue(),
+                node.path("teamName").textValue());
+    }
+
+    private static final class MemberRow {
+
+        private final String username;
+        private final int age;
+        private final String teamName;
+
+        private MemberRow(String username, int age, String teamName) {
+            this.username = username;
+            this.age = age;
+            this.teamName = hasText(teamName) ? teamName : null;
+        }
+    }
+}
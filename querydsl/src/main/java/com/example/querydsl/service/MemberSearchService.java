@@ -0,0 +1,90 @@
+package com.example.querydsl.service;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.event.EntityChangeEvent;
+import com.example.querydsl.event.MembersBulkChangedEvent;
+import com.example.querydsl.repository.MemberRepository;
+import com.example.querydsl.repository.support.SingleFlight;
+import com.example.querydsl.support.Transactions;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent member searches (same method, normalized condition and pageable)
+ * into one repository call, outside any transaction so waiting callers hold no connection.
+ * Results may be reused for member.search.coalesce.ttl (0 = coalesce in-flight calls only)
+ * and are dropped whenever a Member or Team change commits; a search still running at that point
+ * is neither joined nor reused by later callers. Waiting for another caller's search gives up
+ * after member.search.coalesce.wait-timeout.
+ */
+@Service
+public class MemberSearchService {
+
+    private final MemberRepository memberRepository;
+    private final SingleFlight<SearchKey, Page<MemberTeamDto>> searches;
+    private final SingleFlight<SearchKey, Slice<MemberTeamDto>> slices;
+
+    public MemberSearchService(MemberRepository memberRepository,
+                               @Value("${member.search.coalesce.ttl:PT0S}") Duration ttl,
+                               @Value("${member.search.coalesce.max-size:1000}") long maxSize,
+                               @Value("${member.search.coalesce.wait-timeout:PT10S}") Duration waitTimeout) {
+        this.memberRepository = memberRepository;
+        this.searches = new SingleFlight<>(ttl, maxSize, waitTimeout);
+        this.slices = new SingleFlight<>(ttl, maxSize, waitTimeout);
+    }
+
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return coalesce(searches, "simple", condition, pageable, () -> memberRepository.searchPageSimple(condition, pageable));
+    }
+
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return coalesce(searches, "complex", condition, pageable, () -> memberRepository.searchPageComplex(condition, pageable));
+    }
+
+    public Page<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable) {
+        return coalesce(searches, "estimated", condition, pageable, () -> memberRepository.searchPageEstimated(condition, pageable));
+    }
+
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        return coalesce(slices, "slice", condition, pageable, () -> memberRepository.searchSlice(condition, pageable));
+    }
+
+    private <T> T coalesce(SingleFlight<SearchKey, T> flight, String method, MemberSearchCondition condition,
+                           Pageable pageable, Supplier<T> search) {
+        // a read-write transaction may see its own uncommitted rows, which must not be shared
+        if (Transactions.inReadWriteTransaction()) {
+            return search.get();
+        }
+        return flight.execute(new SearchKey(method, condition.normalized(), pageable), search);
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        searches.invalidateAll();
+        slices.invalidateAll();
+    }
+
+    @EventListener
+    public void onMembersBulkChanged(MembersBulkChangedEvent event) {
+        searches.invalidateAll();
+        slices.invalidateAll();
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class SearchKey {
+        private final String method;
+        private final MemberSearchCondition condition;
+        private final Pageable pageable;
+    }
+}
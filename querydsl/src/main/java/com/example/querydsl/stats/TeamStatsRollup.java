@@ -0,0 +1,313 @@
+package com.example.querydsl.stats;
+
+import com.example.querydsl.dto.TeamStats;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.event.EntityChangeEvent;
+import com.example.querydsl.event.EntityChangeType;
+import com.example.querydsl.event.MembersBulkChangedEvent;
+import com.example.querydsl.support.ReplayingRebuild;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+
+/**
+ * Per-team member count, age sum and min/max, kept current from committed Member/Team changes
+ * so reads cost O(teams). Removing a team's min or max age cannot be undone incrementally; such teams
+ * are re-aggregated on the next read. Changes the events cannot describe (bulk statements, updates
+ * without a loaded old state) mark the whole rollup for recomputation, which also runs periodically.
+ * Changes committed while a re-aggregation runs are queued and replayed onto its result before it is
+ * swapped in ({@link ReplayingRebuild}). Only a change whose commit the aggregate query already saw but whose event arrives after
+ * the queue opened (the gap between a commit and its post-commit callback) is counted twice, until the
+ * next periodic reconcile.
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamStatsRollup {
+
+    private final JPAQueryFactory queryFactory;
+
+    private final Object recomputeLock = new Object();
+    private final ReplayingRebuild<Rollups> rollups = new ReplayingRebuild<>(Rollups.dirty());
+
+    @Transactional(readOnly = true)
+    public List<TeamStats> snapshot() {
+        if (needsRecompute()) {
+            // one re-aggregation at a time; callers queued behind it find the work done
+            synchronized (recomputeLock) {
+                // null when the whole rollup needs recomputing
+                Set<Long> stale = rollups.read(live -> live.dirty ? null : new HashSet<>(live.staleExtrema));
+                if (stale == null) {
+                    recompute(null);
+                } else if (!stale.isEmpty()) {
+                    recompute(stale);
+                }
+            }
+        }
+
+        List<TeamStats> result = rollups.read(live -> {
+            List<TeamStats> stats = new ArrayList<>();
+            live.teams.forEach((teamId, rollup) -> stats.add(rollup.toStats(teamId)));
+            return stats;
+        });
+        result.sort(Comparator.comparing(TeamStats::getTeamName, Comparator.nullsLast(Comparator.naturalOrder())));
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    @Scheduled(fixedDelayString = "${team.stats.reconcile-interval:PT5M}",
+            initialDelayString = "${team.stats.reconcile-interval:PT5M}")
+    public void reconcile() {
+        synchronized (recomputeLock) {
+            recompute(null);
+        }
+    }
+
+    private boolean needsRecompute() {
+        return rollups.read(live -> live.dirty || !live.staleExtrema.isEmpty());
+    }
+
+    /**
+     * Re-aggregates the given teams (all teams when null) and swaps the result in, after replaying
+     * the changes committed meanwhile onto it. Callers hold recomputeLock.
+     */
+    private void recompute(Set<Long> teamIds) {
+        rollups.rebuild(() -> load(teamIds), (live, fresh) -> {
+            if (teamIds == null) {
+                return fresh;
+            }
+            live.replaceTeams(fresh);
+            return live;
+        });
+    }
+
+    private Rollups load(Set<Long> teamIds) {
+        Rollups fresh = new Rollups(teamIds);
+        JPAQuery<Tuple> names = queryFactory.select(team.id, team.name).from(team);
+        if (teamIds != null) {
+            names.where(team.id.in(teamIds));
+        }
+        for (Tuple row : names.fetch()) {
+            fresh.teams.put(row.get(team.id), new Rollup(row.get(team.name)));
+        }
+        aggregate(teamIds).forEach((teamId, rollup) -> {
+            Rollup named = fresh.teams.get(teamId);
+            if (named != null) {
+                named.replaceWith(rollup);
+            }
+        });
+        return fresh;
+    }
+
+    /**
+     * count/sum/min/max per team, for the given teams or all of them; teams without members are absent.
+     */
+    private Map<Long, Rollup> aggregate(Collection<Long> teamIds) {
+        JPAQuery<Tuple> query = queryFactory
+                .select(member.team.id, member.count(), member.age.sum(), member.age.min(), member.age.max())
+                .from(member)
+                .where(member.team.isNotNull())
+                .groupBy(member.team.id);
+        if (teamIds != null) {
+            query.where(member.team.id.in(teamIds));
+        }
+        Map<Long, Rollup> result = new HashMap<>();
+        for (Tuple row : query.fetch()) {
+            Rollup rollup = new Rollup(null);
+            rollup.count = row.get(1, Number.class).longValue();
+            rollup.ageSum = row.get(2, Number.class).longValue();
+            rollup.ageMin = row.get(3, Number.class).intValue();
+            rollup.ageMax = row.get(4, Number.class).intValue();
+            result.put(row.get(0, Long.class), rollup);
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Team.class) || event.isFor(Member.class)) {
+            rollups.apply(live -> live.apply(event));
+        }
+    }
+
+    @EventListener
+    public void onMembersBulkChanged(MembersBulkChangedEvent event) {
+        rollups.apply(live -> live.dirty = true);
+    }
+
+    /**
+     * The rollups of all teams, or of the teams in scope when re-aggregating a few of them;
+     * changes to teams outside the scope are ignored.
+     */
+    private static final class Rollups {
+
+        private final Set<Long> scope;
+        private final Map<Long, Rollup> teams = new HashMap<>();
+        private final Set<Long> staleExtrema = new HashSet<>();
+        private boolean dirty;
+
+        private Rollups(Set<Long> scope) {
+            this.scope = scope;
+        }
+
+        private static Rollups dirty() {
+            Rollups rollups = new Rollups(null);
+            rollups.dirty = true;
+            return rollups;
+        }
+
+        private void apply(EntityChangeEvent event) {
+            if (dirty) {
+                return;
+            }
+            if (event.isFor(Team.class)) {
+                onTeamChange(event);
+            } else {
+                onMemberChange(event);
+            }
+        }
+
+        /**
+         * Takes over the re-aggregated teams; min/max stay stale only where a replayed change made them so again.
+         */
+        private void replaceTeams(Rollups refreshed) {
+            if (refreshed.dirty) {
+                dirty = true;
+                return;
+            }
+            for (Long teamId : refreshed.scope) {
+                Rollup rollup = refreshed.teams.get(teamId);
+                if (rollup != null && teams.containsKey(teamId)) {
+                    teams.put(teamId, rollup);
+                }
+                if (!refreshed.staleExtrema.contains(teamId)) {
+                    staleExtrema.remove(teamId);
+                }
+            }
+        }
+
+        private boolean covers(Long teamId) {
+            return teamId != null && (scope == null || scope.contains(teamId));
+        }
+
+        private void onTeamChange(EntityChangeEvent event) {
+            Long teamId = (Long) event.getId();
+            if (!covers(teamId)) {
+                return;
+            }
+            switch (event.getType()) {
+                case INSERT:
+                    teams.put(teamId, new Rollup((String) event.getValue("name")));
+                    break;
+                case UPDATE:
+                    teams.computeIfAbsent(teamId, id -> new Rollup(null)).name = (String) event.getValue("name");
+                    break;
+                case DELETE:
+                    teams.remove(teamId);
+                    staleExtrema.remove(teamId);
+                    break;
+            }
+        }
+
+        private void onMemberChange(EntityChangeEvent event) {
+            if (event.getType() == EntityChangeType.UPDATE && event.getOldState() == null) {
+                dirty = true;
+                return;
+            }
+            if (event.getOldState() != null) {
+                remove(Team.idOf((Team) event.getOldValue("team")), (Integer) event.getOldValue("age"));
+            }
+            if (event.getState() != null) {
+                add(Team.idOf((Team) event.getValue("team")), (Integer) event.getValue("age"));
+            }
+        }
+
+        private void add(Long teamId, Integer age) {
+            if (!covers(teamId)) {
+                return;
+            }
+            Rollup rollup = teams.get(teamId);
+            if (rollup == null) {
+                dirty = true;
+                return;
+            }
+            rollup.add(age);
+        }
+
+        private void remove(Long teamId, Integer age) {
+            if (!covers(teamId)) {
+                return;
+            }
+            Rollup rollup = teams.get(teamId);
+            if (rollup == null || rollup.count == 0) {
+                dirty = true;
+                return;
+            }
+            if (rollup.remove(age)) {
+                staleExtrema.add(teamId);
+            }
+        }
+    }
+
+    private static final class Rollup {
+
+        private String name;
+        private long count;
+        private long ageSum;
+        private Integer ageMin;
+        private Integer ageMax;
+
+        private Rollup(String name) {
+            this.name = name;
+        }
+
+        private void add(int age) {
+            count++;
+            ageSum += age;
+            ageMin = ageMin == null ? age : Math.min(ageMin, age);
+            ageMax = ageMax == null ? age : Math.max(ageMax, age);
+        }
+
+        /**
+         * Returns true when the removed age was an extreme, so min/max must be re-aggregated.
+         */
+        private boolean remove(int age) {
+            count--;
+            ageSum -= age;
+            if (count == 0) {
+                ageMin = null;
+                ageMax = null;
+                return false;
+            }
+            return age == ageMin || age == ageMax;
+        }
+
+        private void replaceWith(Rollup aggregated) {
+            count = aggregated.count;
+            ageSum = aggregated.ageSum;
+            ageMin = aggregated.ageMin;
+            ageMax = aggregated.ageMax;
+        }
+
+        private TeamStats toStats(Long teamId) {
+            return new TeamStats(teamId, name, count, ageSum, ageMin, ageMax);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.querydsl.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An in-memory structure kept current from committed change events and rebuilt from the database.
+ * Changes applied while a rebuild loads are queued and replayed onto the loaded structure before it is
+ * swapped in, so none committed during the load is lost. Replaying is exact for upserts and deletes by id;
+ * a counting change whose commit the load already saw, but whose post-commit event arrived after the queue
+ * opened, is counted twice until the next rebuild.
+ * Changes, the swap and {@link #read} run under the lock; rebuilds must not overlap, which callers ensure.
+ */
+public final class ReplayingRebuild<T> {
+
+    private final Lock lock;
+    private volatile T current;
+    private List<Consumer<T>> pending;
+
+    public ReplayingRebuild(T initial) {
+        this(new ReentrantLock(), initial);
+    }
+
+    public ReplayingRebuild(Lock lock, T initial) {
+        this.lock = lock;
+        this.current = initial;
+    }
+
+    /**
+     * The structure last swapped in, or the initial one (possibly null); read without the lock.
+     */
+    public T current() {
+        return current;
+    }
+
+    public <R> R read(Function<T, R> reader) {
+        lock.lock();
+        try {
+            return reader.apply(current);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the change to the current structure, when there is one, and queues it for a rebuild in progress.
+     */
+    public void apply(Consumer<T> change) {
+        lock.lock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+            }
+            if (current != null) {
+                change.accept(current);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public T rebuild(Supplier<T> load) {
+        return rebuild(load, (replaced, fresh) -> fresh);
+    }
+
+    /**
+     * Loads outside the lock, then replays the changes applied meanwhile onto the loaded structure and makes
+     * swap(current, loaded) current. A failed load drops the queue and leaves the current structure in place.
+     */
+    public T rebuild(Supplier<T> load, BinaryOperator<T> swap) {
+        lock.lock();
+        try {
+            if (pending != null) {
+                throw new IllegalStateException("rebuild already in progress");
+            }
+            pending = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        T fresh;
+        try {
+            fresh = load.get();
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                pending = null;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        lock.lock();
+        try {
+            for (Consumer<T> change : pending) {
+                change.accept(fresh);
+            }
+            pending = null;
+            current = swap.apply(current, fresh);
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.querydsl.support;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class Transactions {
+
+    private Transactions() {
+    }
+
+    /**
+     * True inside a read-write transaction, whose uncommitted changes only the database sees;
+     * in-memory structures kept from post-commit events must not answer for it.
+     */
+    public static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.querydsl;
+
+import com.example.querydsl.entity.Team;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Base for tests whose transactions must commit, e.g. because the code under test follows post-commit events.
+ * Commits teamA and teamB plus the members of {@link #persistMembers} before each test, and deletes every
+ * row after it, since nothing is rolled back.
+ */
+public abstract class CommittingTestSupport {
+
+    @Autowired
+    protected TransactionTemplate transactionTemplate;
+    @Autowired
+    protected EntityManager em;
+
+    protected Long teamAId;
+    protected Long teamBId;
+
+    @BeforeEach
+    public void persistFixture() {
+        transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            persistMembers(teamA, teamB);
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            return null;
+        });
+    }
+
+    /**
+     * Runs inside the fixture transaction, after both teams are persisted.
+     */
+    protected abstract void persistMembers(Team teamA, Team teamB);
+
+    @AfterEach
+    public void deleteFixture() {
+        transactionTemplate.execute(status -> {
+            em.createQuery("delete from TestEntity").executeUpdate();
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            return null;
+        });
+    }
+
+    /**
+     * JDBC statements prepared while the action runs, from Hibernate statistics.
+     */
+    protected long statementsFor(Runnable action) {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        long before = statistics.getPrepareStatementCount();
+        action.run();
+        return statistics.getPrepareStatementCount() - before;
+    }
+}
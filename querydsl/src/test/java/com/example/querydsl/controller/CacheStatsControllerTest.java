@@ -0,0 +1,75 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.CommittingTestSupport;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.TeamRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The test application.yml leaves the second-level cache off, so this context turns on the regions of the main one.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create"
+})
+@AutoConfigureMockMvc
+class CacheStatsControllerTest extends CommittingTestSupport {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Override
+    protected void persistMembers(Team teamA, Team teamB) {
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+    }
+
+    @Test
+    public void teamAndMembersAreCachedTest() throws Exception {
+        loadTeamAMembers();
+
+        assertThat(statementsFor(() -> assertThat(loadTeamAMembers()).isEqualTo(2))).isZero();
+
+        mockMvc.perform(get("/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.region == 'team')].hitCount", everyItem(greaterThan(0))))
+                .andExpect(jsonPath("$[?(@.region == 'team')]", hasSize(1)))
+                .andExpect(jsonPath("$[?(@.region == 'team.members')].hitCount", everyItem(greaterThan(0))))
+                .andExpect(jsonPath("$[?(@.region == 'team.members')]", hasSize(1)));
+    }
+
+    @Test
+    public void teamNameLookupIsCachedTest() throws Exception {
+        teamRepository.findFirstByNameOrderByIdAsc("teamA");
+
+        assertThat(statementsFor(() -> assertThat(teamRepository.findFirstByNameOrderByIdAsc("teamA"))
+                .hasValueSatisfying(team -> assertThat(team.getId()).isEqualTo(teamAId)))).isZero();
+
+        mockMvc.perform(get("/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.region == 'team-queries')].hitCount", everyItem(greaterThan(0))))
+                .andExpect(jsonPath("$[?(@.region == 'team-queries')]", hasSize(1)));
+    }
+
+    private int loadTeamAMembers() {
+        return transactionTemplate.execute(status -> em.find(Team.class, teamAId).getMembers().size());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.dto.MemberKeysetCursor;
+import com.example.querydsl.repository.MemberRepository;
+import com.example.querydsl.repository.support.SearchCancellation;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.servlet.AsyncListener;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @MockBean
+    private MemberRepository memberRepository;
+
+    @Test
+    public void invalidKeysetCursorIsBadRequestTest() throws Exception {
+        given(memberRepository.searchKeyset(any(), any(), any(), anyInt()))
+                .willAnswer(invocation -> MemberKeysetCursor.decode(invocation.getArgument(2)));
+
+        mockMvc.perform(get("/v4/members").param("after", "bm90LWEtY3Vyc29y"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void asyncSearchRecordsWorkerStatementsTest() throws Exception {
+        given(memberRepository.searchPageComplex(any(), any(), any())).willAnswer(invocation -> {
+            jdbcTemplate.queryForObject("select count(*) from member", Long.class);
+            jdbcTemplate.queryForObject("select count(*) from team", Long.class);
+            return Page.empty();
+        });
+
+        MvcResult mvcResult = mockMvc.perform(get("/v3/members/async"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.get("sql.request.statements")
+                .tag("uri", "/v3/members/async")
+                .summary();
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(statements.totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    public void asyncSearchCancelledOnTimeoutTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicReference<SearchCancellation> cancellation = new AtomicReference<>();
+        given(memberRepository.searchPageComplex(any(), any(), any())).willAnswer(invocation -> {
+            cancellation.set(invocation.getArgument(2));
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new CancellationException("search interrupted");
+            }
+            return Page.empty();
+        });
+
+        MvcResult mvcResult = mockMvc.perform(get("/v3/members/async"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockAsyncContext asyncContext = (MockAsyncContext) mvcResult.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(cancellation.get().isCancelled()).isTrue();
+    }
+}
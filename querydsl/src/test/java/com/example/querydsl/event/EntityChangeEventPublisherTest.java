@@ -0,0 +1,134 @@
+package com.example.querydsl.event;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.support.MemberCountCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Not @Transactional: post-commit events only fire when the test's own transactions actually commit.
+ */
+@SpringBootTest
+class EntityChangeEventPublisherTest {
+
+    @Autowired
+    private MemberCountCache memberCountCache;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManager em;
+
+    private final MemberSearchCondition all = new MemberSearchCondition();
+    private final MemberSearchCondition byTeam = new MemberSearchCondition();
+
+    @BeforeEach
+    public void beforeEach() {
+        byTeam.setTeamName("teamA");
+        memberCountCache.invalidateAll();
+        memberCountCache.get(all, () -> 42L);
+        memberCountCache.get(byTeam, () -> 7L);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        transactionTemplate.execute(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            return null;
+        });
+        memberCountCache.invalidateAll();
+    }
+
+    @Test
+    public void committedMemberInsertInvalidatesCounts() throws Exception {
+        transactionTemplate.execute(status -> {
+            em.persist(new Member("member1", 10));
+            return null;
+        });
+
+        assertThat(memberCountCache.getIfPresent(all)).isNull();
+        assertThat(memberCountCache.getIfPresent(byTeam)).isNull();
+    }
+
+    @Test
+    public void rolledBackMemberInsertKeepsCounts() throws Exception {
+        transactionTemplate.execute(status -> {
+            em.persist(new Member("member1", 10));
+            em.flush();
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertThat(memberCountCache.getIfPresent(all)).isEqualTo(42L);
+        assertThat(memberCountCache.getIfPresent(byTeam)).isEqualTo(7L);
+    }
+
+    @Test
+    public void countLoadedAcrossCommitIsNotCached() throws Exception {
+        memberCountCache.invalidateAll();
+
+        long loaded = memberCountCache.get(all, () -> {
+            // a member commits after the count started and before it is stored
+            transactionTemplate.execute(status -> {
+                em.persist(new Member("member1", 10));
+                return null;
+            });
+            return 0L;
+        });
+
+        assertThat(loaded).isZero();
+        assertThat(memberCountCache.getIfPresent(all)).isNull();
+        assertThat(memberCountCache.get(all, () -> 1L)).isEqualTo(1L);
+        assertThat(memberCountCache.getIfPresent(all)).isEqualTo(1L);
+    }
+
+    @Test
+    public void teamCommitDuringLoadOnlyDropsTeamCounts() throws Exception {
+        Long teamId = transactionTemplate.execute(status -> {
+            Team team = new Team("teamA");
+            em.persist(team);
+            return team.getId();
+        });
+        memberCountCache.invalidateAll();
+        MemberCountCache.Stamp started = memberCountCache.stamp();
+
+        transactionTemplate.execute(status -> {
+            em.find(Team.class, teamId).setName("teamZ");
+            return null;
+        });
+        memberCountCache.get(all, started, () -> 42L);
+        memberCountCache.get(byTeam, started, () -> 7L);
+
+        assertThat(memberCountCache.getIfPresent(all)).isEqualTo(42L);
+        assertThat(memberCountCache.getIfPresent(byTeam)).isNull();
+    }
+
+    @Test
+    public void committedTeamUpdateInvalidatesTeamCounts() throws Exception {
+        Long teamId = transactionTemplate.execute(status -> {
+            Team team = new Team("teamA");
+            em.persist(team);
+            return team.getId();
+        });
+        memberCountCache.get(all, () -> 42L);
+        memberCountCache.get(byTeam, () -> 7L);
+
+        transactionTemplate.execute(status -> {
+            em.find(Team.class, teamId).setName("teamZ");
+            return null;
+        });
+
+        assertThat(memberCountCache.getIfPresent(all)).isEqualTo(42L);
+        assertThat(memberCountCache.getIfPresent(byTeam)).isNull();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.querydsl.monitoring;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.repository.MemberRepository;
+import com.example.querydsl.repository.support.MemberCountCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A zero threshold samples every repository select; not @Transactional, so the concurrent count
+ * of searchPageComplex actually runs on the member-count pool.
+ */
+@SpringBootTest(properties = {"sql.slow-query.threshold=PT0S", "member.search.concurrent-count=true"})
+class SlowQuerySamplerTest {
+
+    @Autowired
+    private SlowQuerySampler slowQuerySampler;
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private MemberCountCache memberCountCache;
+
+    @Test
+    public void explainBindsParametersTest() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1' or '1'='1");
+
+        memberRepository.searchPageSimple(condition, PageRequest.of(0, 10));
+
+        SlowQuerySample sample = awaitSample(s -> s.getSource().equals("MemberRepositoryImpl.searchPageSimple"));
+        assertThat(sample.getPlan())
+                .doesNotStartWith("explain")
+                .containsIgnoringCase("member")
+                .doesNotContain("'1'='1");
+        assertThat(sample.getSql())
+                .contains("?")
+                .doesNotContain("member1");
+    }
+
+    @Test
+    public void concurrentCountIsSampledTest() throws Exception {
+        memberCountCache.invalidateAll();
+
+        // an empty page past the first one always needs the total
+        memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(1, 10));
+
+        SlowQuerySample sample = awaitSample(s -> s.getSource().equals("ConcurrentCountExecutor.count"));
+        assertThat(sample.getSql()).containsIgnoringCase("count(");
+        assertThat(sample.getPlan()).doesNotStartWith("explain");
+    }
+
+    private SlowQuerySample awaitSample(Predicate<SlowQuerySample> matching) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            for (SlowQuerySample sample : slowQuerySampler.samples()) {
+                if (matching.test(sample)) {
+                    return sample;
+                }
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("no matching sample in " + slowQuerySampler.samples());
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.CommittingTestSupport;
+import com.example.querydsl.dto.BulkProgress;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.entity.TestEntity;
+import com.example.querydsl.event.EntityChangeType;
+import com.example.querydsl.event.MembersBulkChangedEvent;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTestEntity.testEntity;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Not @Transactional: bulk changes commit chunk by chunk and are rejected inside a read-write transaction.
+ */
+@SpringBootTest
+class MemberRepositoryBulkTest extends CommittingTestSupport {
+
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private JPAQueryFactory queryFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private BulkEvents bulkEvents;
+
+    private final List<Long> teamAIds = new ArrayList<>();
+
+    @Override
+    protected void persistMembers(Team teamA, Team teamB) {
+        for (int i = 0; i < 10; i++) {
+            Member member = new Member("member" + i, i * 10, i < 5 ? teamA : teamB);
+            em.persist(member);
+            if (i < 5) {
+                teamAIds.add(member.getId());
+            }
+        }
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        bulkEvents.events.clear();
+    }
+
+    @Test
+    public void bulkAddAgeChunkTest() throws Exception {
+        List<BulkProgress> progress = new ArrayList<>();
+
+        long rows = memberRepository.bulkAddAge(new MemberSearchCondition(), 1, 3, progress::add);
+
+        assertThat(rows).isEqualTo(10);
+        assertThat(progress).extracting("chunks").containsExactly(1, 2, 3, 4);
+        assertThat(progress).extracting("rows").containsExactly(3L, 6L, 9L, 10L);
+        assertThat(queryFactory.select(member.age.sum()).from(member).fetchOne()).isEqualTo(450 + 10);
+        assertThat(bulkEvents.events).hasSize(4)
+                .allMatch(event -> event.getType() == EntityChangeType.UPDATE);
+        assertThat(bulkEvents.events).flatExtracting(MembersBulkChangedEvent::getMemberIds).hasSize(10);
+    }
+
+    @Test
+    public void bulkDeleteByTeamTest() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        long rows = memberRepository.bulkDelete(condition, 2, null);
+
+        assertThat(rows).isEqualTo(5);
+        assertThat(queryFactory.selectFrom(member).fetch()).extracting("username")
+                .containsExactlyInAnyOrder("member5", "member6", "member7", "member8", "member9");
+        assertThat(bulkEvents.events).flatExtracting(MembersBulkChangedEvent::getMemberIds)
+                .containsExactlyElementsOf(teamAIds);
+    }
+
+    @Test
+    public void bulkDeleteRemovesDependentTestEntitiesTest() throws Exception {
+        transactionTemplate.execute(status -> {
+            for (long testId = 1; testId <= 3; testId++) {
+                em.persist(new TestEntity(em.find(Member.class, teamAIds.get(1)), testId));
+            }
+            em.persist(new TestEntity(em.find(Member.class, teamAIds.get(4)), 1L));
+            return null;
+        });
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+
+        long rows = memberRepository.bulkDelete(teamA, 2, null);
+
+        assertThat(rows).isEqualTo(5);
+        assertThat(queryFactory.selectFrom(member).fetch()).extracting("username")
+                .containsExactlyInAnyOrder("member5", "member6", "member7", "member8", "member9");
+        assertThat(queryFactory.selectFrom(testEntity).fetch()).isEmpty();
+    }
+
+    @Test
+    public void bulkSyncsCallerPersistenceContextTest() throws Exception {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+
+        readOnly.execute(status -> {
+            Member updated = em.find(Member.class, teamAIds.get(1));
+            memberRepository.bulkAddAge(teamA, 5, 2, null);
+            assertThat(updated.getAge()).isEqualTo(15);
+
+            Member deleted = em.find(Member.class, teamAIds.get(2));
+            memberRepository.bulkDelete(teamA, 2, null);
+            assertThat(em.contains(deleted)).isFalse();
+            return null;
+        });
+    }
+
+    @Test
+    public void bulkRejectsReadWriteTransactionTest() throws Exception {
+        assertThatThrownBy(() -> transactionTemplate.execute(status ->
+                memberRepository.bulkAddAge(new MemberSearchCondition(), 1, 100, null)))
+                .isInstanceOf(IllegalTransactionStateException.class);
+
+        assertThat(queryFactory.select(member.age.sum()).from(member).fetchOne()).isEqualTo(450);
+    }
+
+    @TestConfiguration
+    static class BulkEventsConfig {
+
+        @Bean
+        public BulkEvents bulkEvents() {
+            return new BulkEvents();
+        }
+    }
+
+    static class BulkEvents {
+
+        private final List<MembersBulkChangedEvent> events = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        public void onMembersBulkChanged(MembersBulkChangedEvent event) {
+            events.add(event);
+        }
+    }
+}
@@ -1,23 +1,32 @@
 package com.example.querydsl.repository;
 
+import com.example.querydsl.dto.InvalidKeysetCursorException;
+import com.example.querydsl.dto.KeysetSlice;
+import com.example.querydsl.dto.MemberKeysetSort;
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
 import com.example.querydsl.entity.Member;
 import com.example.querydsl.entity.QMember;
 import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.support.SearchCancellation;
 import com.mysema.commons.lang.Assert;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.concurrent.CancellationException;
 
 import static com.example.querydsl.entity.QMember.member;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest
@@ -59,6 +68,107 @@ class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").contains("member1");
     }
 
+    @Test
+    public void keysetTest() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        KeysetSlice<MemberTeamDto> first = memberRepository.searchKeyset(condition, MemberKeysetSort.AGE, null, 3);
+        KeysetSlice<MemberTeamDto> second = memberRepository.searchKeyset(condition, MemberKeysetSort.AGE, first.getNextCursor(), 3);
+
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(second.getContent()).extracting("username").containsExactly("member4");
+        assertThat(second.isHasNext()).isFalse();
+    }
+
+    @Test
+    public void usernameKeysetTest() throws Exception {
+        Team teamC = new Team("teamC");
+        em.persist(teamC);
+        em.persist(new Member(null, 50, teamC));
+        em.persist(new Member(null, 60, teamC));
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        KeysetSlice<MemberTeamDto> first = memberRepository.searchKeyset(condition, MemberKeysetSort.USERNAME, null, 3);
+        KeysetSlice<MemberTeamDto> second = memberRepository.searchKeyset(condition, MemberKeysetSort.USERNAME, first.getNextCursor(), 2);
+        KeysetSlice<MemberTeamDto> third = memberRepository.searchKeyset(condition, MemberKeysetSort.USERNAME, second.getNextCursor(), 2);
+
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(second.getContent()).extracting("age").containsExactly(40, 50);
+        assertThat(second.isHasNext()).isTrue();
+        assertThat(third.getContent()).extracting("age").containsExactly(60);
+        assertThat(third.isHasNext()).isFalse();
+    }
+
+    @Test
+    public void invalidKeysetCursorTest() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        assertThatThrownBy(() -> memberRepository.searchKeyset(condition, MemberKeysetSort.AGE, "QUdFOjE6eA", 3))
+                .isInstanceOf(InvalidKeysetCursorException.class);
+    }
+
+    @Test
+    public void cancelledSearchRunsNoStatementTest() throws Exception {
+        SearchCancellation cancellation = new SearchCancellation();
+        cancellation.cancel();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertThatThrownBy(() -> memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(0, 3), cancellation))
+                .isInstanceOf(CancellationException.class);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    public void usernamePatternTest() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("member");
+        condition.setUsernameContains("ber3");
+
+        Page<MemberTeamDto> result = memberRepository.searchPageSimple(condition, PageRequest.of(0, 10));
+
+        assertThat(result.getContent()).extracting("username").containsExactly("member3");
+        assertThat(result.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    public void sliceTest() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+        Slice<MemberTeamDto> second = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+
+        assertThat(first.getContent()).hasSize(3);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).hasSize(1);
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    public void batchFetchTest() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Team team = new Team("batchTeam" + i);
+            em.persist(team);
+            for (int j = 0; j < 10; j++) {
+                em.persist(new Member("batchMember" + (i * 10 + j), j, team));
+            }
+        }
+        em.flush();
+        em.clear();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<Member> result = memberRepository.findAllWithTeamBy(PageRequest.of(0, 100));
+        for (Member findMember : result) {
+            findMember.getTeam().getMembers().size();
+        }
+
+        // page with team joined + count + one batched load of the teams' members, instead of 1 + N
+        assertThat(result.getContent()).hasSize(100);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+
     @Test
     public void querydslPredicateExecutorTest() throws Exception {
         Iterable<Member> result = memberRepository.findAll(
@@ -0,0 +1,94 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.TestEntity;
+import com.example.querydsl.entity.TestId;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class TestEntityRepositoryTest {
+
+    @Autowired
+    private TestEntityRepository testEntityRepository;
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    public void findAllByIdInOrderTest() throws Exception {
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        em.persist(member1);
+        em.persist(member2);
+        for (long testId = 1; testId <= 3; testId++) {
+            em.persist(new TestEntity(member1, testId));
+            em.persist(new TestEntity(member2, testId));
+        }
+        em.flush();
+        em.clear();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<TestId> ids = Arrays.asList(
+                new TestId(member2.getId(), 3L),
+                new TestId(member1.getId(), 1L),
+                new TestId(member1.getId(), 99L),
+                new TestId(member2.getId(), 1L),
+                new TestId(member1.getId(), 3L));
+        List<TestEntity> result = testEntityRepository.findAllByIdInOrder(ids);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(result).extracting("testId").containsExactly(3L, 1L, 1L, 3L);
+        assertThat(result).extracting(entity -> entity.getMember().getId())
+                .containsExactly(member2.getId(), member1.getId(), member2.getId(), member1.getId());
+    }
+
+    @Test
+    public void saveAllWithoutMergeTest() throws Exception {
+        Member member1 = new Member("member1", 10);
+        em.persist(member1);
+        em.flush();
+        em.clear();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Member reference = em.getReference(Member.class, member1.getId());
+        List<TestEntity> entities = new ArrayList<>();
+        for (long testId = 1; testId <= 10; testId++) {
+            entities.add(new TestEntity(reference, testId));
+        }
+        testEntityRepository.saveAll(entities);
+        em.flush();
+
+        // no merge pre-selects, and the ten inserts share one batched statement
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(10);
+    }
+
+    @Test
+    public void insertAllTest() throws Exception {
+        Member member1 = new Member("member1", 10);
+        em.persist(member1);
+
+        List<TestEntity> entities = new ArrayList<>();
+        for (long testId = 1; testId <= 10; testId++) {
+            entities.add(new TestEntity(member1, testId));
+        }
+        testEntityRepository.insertAll(entities);
+
+        assertThat(testEntityRepository.count()).isEqualTo(10);
+        assertThat(entities).noneMatch(TestEntity::isNew);
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.CommittingTestSupport;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.event.EntityChangeEvent;
+import com.example.querydsl.event.EntityChangeType;
+import com.example.querydsl.repository.MemberRepository;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Not @Transactional: the index follows post-commit events and only serves outside read-write transactions.
+ */
+@SpringBootTest(properties = {"member.age-index.enabled=true", "member.age-index.max-ids=50"})
+@Import(MemberStreamHook.class)
+class MemberAgeIndexTest extends CommittingTestSupport {
+
+    @Autowired
+    private MemberAgeIndex ageIndex;
+    @Autowired
+    private JPAQueryFactory queryFactory;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private MemberStreamHook memberStreamHook;
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> memberIds = new ArrayList<>();
+
+    @Override
+    protected void persistMembers(Team teamA, Team teamB) {
+        for (int i = 0; i < 30; i++) {
+            Member member = new Member("member" + i, i % 7 * 10, i % 3 == 0 ? teamA : i % 3 == 1 ? teamB : null);
+            em.persist(member);
+            memberIds.add(member.getId());
+        }
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        // other contexts share the database but not this index
+        ageIndex.rebuild();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        memberStreamHook.disarm();
+    }
+
+    @Test
+    public void canServeTest() throws Exception {
+        assertThat(ageIndex.canServe(condition(null, 10, null))).isTrue();
+        assertThat(ageIndex.canServe(condition("teamA", null, 30))).isTrue();
+        assertThat(ageIndex.canServe(condition("teamA", null, null))).isFalse();
+
+        MemberSearchCondition byUsername = condition(null, 10, null);
+        byUsername.setUsername("member1");
+        assertThat(ageIndex.canServe(byUsername)).isFalse();
+
+        transactionTemplate.execute(status -> {
+            assertThat(ageIndex.canServe(condition(null, 10, null))).isFalse();
+            return null;
+        });
+    }
+
+    @Test
+    public void countAndPageTest() throws Exception {
+        assertParity();
+    }
+
+    @Test
+    public void pageOffsetSkipsAcrossPartitionsTest() throws Exception {
+        MemberSearchCondition condition = condition(null, 10, 50);
+        List<Long> all = expectedIds(condition, 0, Integer.MAX_VALUE);
+
+        for (int offset = 0; offset <= all.size(); offset++) {
+            assertThat(ids(ageIndex.pageIds(condition, offset, 3)))
+                    .as("offset %d", offset)
+                    .containsExactlyElementsOf(all.subList(offset, Math.min(all.size(), offset + 3)));
+        }
+        assertThat(ageIndex.pageIds(condition, 0, 51)).isNull();
+    }
+
+    @Test
+    public void memberEventsTest() throws Exception {
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member("member30", 25, em.find(Team.class, teamAId));
+            em.persist(member);
+            return member.getId();
+        });
+        assertParity();
+
+        transactionTemplate.execute(status -> {
+            Member member = em.find(Member.class, memberId);
+            member.setAge(45);
+            member.changeTeam(em.find(Team.class, teamBId));
+            return null;
+        });
+        assertParity();
+
+        transactionTemplate.execute(status -> {
+            em.find(Team.class, teamAId).setName("teamZ");
+            em.remove(em.find(Member.class, memberId));
+            em.remove(em.find(Member.class, memberIds.get(0)));
+            return null;
+        });
+        assertThat(ageIndex.count(condition("teamZ", 0, null))).isEqualTo(9);
+        assertParity();
+    }
+
+    @Test
+    public void updateWithoutOldStateTest() throws Exception {
+        Long memberId = memberIds.get(3);
+        transactionTemplate.execute(status -> {
+            em.createQuery("update Member m set m.age = 65, m.team = null where m.id = :id")
+                    .setParameter("id", memberId)
+                    .executeUpdate();
+            return null;
+        });
+
+        // what Hibernate publishes for an update of a detached member: the new state only
+        eventPublisher.publishEvent(new EntityChangeEvent(EntityChangeType.UPDATE, Member.class, memberId, null,
+                new String[]{"age", "team", "username"}, new Object[]{65, null, "member3"}, null));
+
+        assertParity();
+    }
+
+    @Test
+    public void insertsIntoOneTeamTest() throws Exception {
+        // enough to fill, split and append several chunks of one partition through events alone
+        transactionTemplate.execute(status -> {
+            Team teamA = em.find(Team.class, teamAId);
+            for (int i = 0; i < 2500; i++) {
+                em.persist(new Member("imported" + i, i * 37 % 80, teamA));
+            }
+            return null;
+        });
+
+        MemberSearchCondition teamA = condition("teamA", 0, null);
+        List<Long> all = expectedIds(teamA, 0, Integer.MAX_VALUE);
+        assertThat(ageIndex.count(teamA)).isEqualTo(all.size());
+        for (int offset : new int[]{0, 511, 512, 1023, 1024, 1500, all.size() - 20}) {
+            assertThat(ids(ageIndex.pageIds(teamA, offset, 50)))
+                    .as("offset %d", offset)
+                    .containsExactlyElementsOf(all.subList(offset, Math.min(all.size(), offset + 50)));
+        }
+
+        transactionTemplate.execute(status -> {
+            em.createQuery("select m from Member m where m.username like 'imported%' and m.age < 40", Member.class)
+                    .getResultList()
+                    .forEach(em::remove);
+            return null;
+        });
+        assertParity();
+    }
+
+    @Test
+    public void bulkUpdateRebuildsInBackgroundTest() throws Exception {
+        MemberSearchCondition teamA = condition("teamA", 0, null);
+
+        memberRepository.bulkAddAge(teamA, 5, 4, null);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!ageIndex.canServe(teamA) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(ageIndex.canServe(teamA)).isTrue();
+        assertThat(ageIndex.count(condition("teamA", 5, 5))).isEqualTo(2);
+        assertParity();
+    }
+
+    @Test
+    public void rebuildReplaysConcurrentChangesTest() throws Exception {
+        Long movedId = memberIds.get(1);
+        Long deletedId = memberIds.get(2);
+        // commits while the rebuild is streaming members, after its query has started
+        memberStreamHook.arm(() -> transactionTemplate.execute(status -> {
+            Member moved = em.find(Member.class, movedId);
+            moved.setAge(75);
+            moved.changeTeam(em.find(Team.class, teamAId));
+            em.remove(em.find(Member.class, deletedId));
+            em.persist(new Member("insertedDuringRebuild", 75, em.find(Team.class, teamBId)));
+            return null;
+        }));
+
+        ageIndex.rebuild();
+
+        assertThat(memberStreamHook.fired()).isTrue();
+        assertThat(ageIndex.count(condition(null, 75, 75))).isEqualTo(2);
+        assertParity();
+    }
+
+    @Test
+    public void sliceHasNextCountsIndexIdsTest() throws Exception {
+        MemberSearchCondition all = condition(null, 0, null);
+        List<Long> expected = expectedIds(all, 0, Integer.MAX_VALUE);
+        // a JDBC write publishes no event, so the index still holds the member's old age
+        jdbcTemplate.update("update member set age = ? where id = ?", -1, expected.get(0));
+
+        Slice<MemberTeamDto> slice = memberRepository.searchSlice(all, PageRequest.of(0, 20));
+
+        assertThat(slice.getContent()).extracting(MemberTeamDto::getMemberId)
+                .containsExactlyElementsOf(expected.subList(1, 20));
+        assertThat(slice.hasNext()).isTrue();
+    }
+
+    private void assertParity() {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        conditions.add(condition(null, 0, null));
+        conditions.add(condition(null, null, 30));
+        conditions.add(condition(null, 20, 40));
+        conditions.add(condition(null, 35, 35));
+        conditions.add(condition("teamA", 10, null));
+        conditions.add(condition("teamB", 10, 50));
+        conditions.add(condition("teamX", 0, null));
+
+        for (MemberSearchCondition condition : conditions) {
+            List<Long> expected = expectedIds(condition, 0, Integer.MAX_VALUE);
+            assertThat(ageIndex.count(condition)).isEqualTo(expected.size());
+            assertThat(ids(ageIndex.pageIds(condition, 0, 50)))
+                    .containsExactlyElementsOf(expected.subList(0, Math.min(expected.size(), 50)));
+            assertThat(ids(ageIndex.pageIds(condition, 5, 4)))
+                    .containsExactlyElementsOf(expected.subList(Math.min(expected.size(), 5), Math.min(expected.size(), 9)));
+        }
+    }
+
+    private List<Long> expectedIds(MemberSearchCondition condition, long offset, long limit) {
+        return queryFactory
+                .select(member.id)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MemberSearchQueries.searchCondition(condition))
+                .orderBy(member.age.asc(), member.id.asc())
+                .offset(offset)
+                .limit(limit)
+                .fetch();
+    }
+
+    private static List<Long> ids(long[] ids) {
+        return Arrays.stream(ids).boxed().collect(Collectors.toList());
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
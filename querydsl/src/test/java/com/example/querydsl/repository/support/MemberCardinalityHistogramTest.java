@@ -0,0 +1,130 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.CommittingTestSupport;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.event.EntityChangeType;
+import com.example.querydsl.event.MembersBulkChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Collections;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Not @Transactional: the histogram follows post-commit events, so the test's transactions must commit.
+ */
+@SpringBootTest
+class MemberCardinalityHistogramTest extends CommittingTestSupport {
+
+    @Autowired
+    private MemberCardinalityHistogram histogram;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    protected void persistMembers(Team teamA, Team teamB) {
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 25));
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        // other test classes clean up with bulk deletes, which the shared histogram never hears about
+        histogram.reconcile();
+    }
+
+    @Test
+    public void estimateTest() throws Exception {
+        assertThat(estimate(null, null, null)).hasValue(5);
+        assertThat(estimate("teamA", null, null)).hasValue(2);
+        assertThat(estimate("teamC", null, null)).hasValue(0);
+        assertThat(estimate(null, 15, 35)).hasValue(3);
+        assertThat(estimate("teamB", 35, null)).hasValue(1);
+        assertThat(estimate(null, 35, 15)).hasValue(0);
+
+        MemberSearchCondition byUsername = new MemberSearchCondition();
+        byUsername.setUsername("member1");
+        assertThat(histogram.estimate(byUsername)).isEmpty();
+    }
+
+    @Test
+    public void memberEventsTest() throws Exception {
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member("member6", 15, em.find(Team.class, teamAId));
+            em.persist(member);
+            return member.getId();
+        });
+        assertThat(statementsFor(() -> assertThat(estimate("teamA", null, null)).hasValue(3))).isZero();
+
+        transactionTemplate.execute(status -> {
+            em.find(Member.class, memberId).setAge(35);
+            return null;
+        });
+        assertThat(statementsFor(() -> {
+            assertThat(estimate("teamA", null, 20)).hasValue(2);
+            assertThat(estimate(null, 35, null)).hasValue(2);
+        })).isZero();
+
+        transactionTemplate.execute(status -> {
+            em.find(Member.class, memberId).changeTeam(em.find(Team.class, teamBId));
+            return null;
+        });
+        assertThat(statementsFor(() -> {
+            assertThat(estimate("teamA", null, null)).hasValue(2);
+            assertThat(estimate("teamB", null, null)).hasValue(3);
+        })).isZero();
+
+        transactionTemplate.execute(status -> {
+            em.remove(em.find(Member.class, memberId));
+            return null;
+        });
+        assertThat(statementsFor(() -> {
+            assertThat(estimate(null, null, null)).hasValue(5);
+            assertThat(estimate("teamB", null, null)).hasValue(2);
+        })).isZero();
+    }
+
+    @Test
+    public void teamRenameTest() throws Exception {
+        transactionTemplate.execute(status -> {
+            em.find(Team.class, teamAId).setName("teamZ");
+            return null;
+        });
+
+        assertThat(statementsFor(() -> {
+            assertThat(estimate("teamA", null, null)).hasValue(0);
+            assertThat(estimate("teamZ", null, null)).hasValue(2);
+        })).isZero();
+    }
+
+    @Test
+    public void bulkChangeRebuildsOnNextEstimate() throws Exception {
+        transactionTemplate.execute(status -> {
+            em.createQuery("delete from Member m where m.age >= 30").executeUpdate();
+            return null;
+        });
+        eventPublisher.publishEvent(new MembersBulkChangedEvent(EntityChangeType.DELETE, Collections.emptyList()));
+
+        assertThat(statementsFor(() -> assertThat(estimate(null, null, null)).hasValue(3))).isPositive();
+        assertThat(statementsFor(() -> assertThat(estimate("teamB", null, null)).hasValue(0))).isZero();
+    }
+
+    private OptionalLong estimate(String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return histogram.estimate(condition);
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.CommittingTestSupport;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberRepository;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Not @Transactional: the snapshot follows post-commit events and only serves outside read-write transactions.
+ */
+@SpringBootTest(properties = "member.snapshot.enabled=true")
+@Import(MemberStreamHook.class)
+class MemberColumnarSnapshotTest extends CommittingTestSupport {
+
+    @Autowired
+    private MemberColumnarSnapshot snapshot;
+    @Autowired
+    private JPAQueryFactory queryFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MemberStreamHook memberStreamHook;
+    @Autowired
+    private MemberRepository memberRepository;
+
+    private final List<Long> memberIds = new ArrayList<>();
+
+    @Override
+    protected void persistMembers(Team teamA, Team teamB) {
+        for (int i = 0; i < 10; i++) {
+            Member member = new Member("member" + i, i * 10, i < 4 ? teamA : i < 8 ? teamB : null);
+            em.persist(member);
+            memberIds.add(member.getId());
+        }
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        // other contexts share the database but not this snapshot
+        snapshot.rebuild();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        memberStreamHook.disarm();
+    }
+
+    @Test
+    public void databaseParityTest() throws Exception {
+        assertParity();
+    }
+
+    @Test
+    public void pageTest() throws Exception {
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+
+        assertThat(snapshot.fetchPage(teamB, 1, 2)).extracting("username").containsExactly("member5", "member6");
+        assertThat(snapshot.fetchPage(teamB, 3, 2)).extracting("username").containsExactly("member7");
+        assertThat(snapshot.fetchPage(teamB, 4, 2)).isEmpty();
+    }
+
+    @Test
+    public void buildTest() throws Exception {
+        // inserted behind Hibernate's back, so no change event reaches the snapshot
+        jdbcTemplate.update("insert into member (id, username, age, team_id) values (?, ?, ?, ?)",
+                900_000_001L, "member99", 99, teamAId);
+        assertThat(snapshot.fetchCount(condition("member99", null))).isZero();
+
+        snapshot.rebuild();
+
+        assertThat(snapshot.fetchPage(condition("member99", null), 0, 10))
+                .containsExactly(new MemberTeamDto(900_000_001L, "member99", 99, teamAId, "teamA"));
+        assertParity();
+    }
+
+    @Test
+    public void patchTest() throws Exception {
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member("member10", 100, em.find(Team.class, teamAId));
+            em.persist(member);
+            return member.getId();
+        });
+        assertParity();
+
+        transactionTemplate.execute(status -> {
+            Member member = em.find(Member.class, memberId);
+            member.setUsername("renamed");
+            member.setAge(15);
+            member.changeTeam(em.find(Team.class, teamBId));
+            return null;
+        });
+        assertThat(snapshot.fetchPage(condition("renamed", "teamB"), 0, 10))
+                .containsExactly(new MemberTeamDto(memberId, "renamed", 15, teamBId, "teamB"));
+        assertParity();
+
+        transactionTemplate.execute(status -> {
+            em.find(Team.class, teamAId).setName("teamZ");
+            Team teamC = new Team("teamC");
+            em.persist(teamC);
+            em.find(Member.class, memberIds.get(9)).changeTeam(teamC);
+            return null;
+        });
+        assertThat(snapshot.fetchCount(condition(null, "teamZ"))).isEqualTo(4);
+        assertThat(snapshot.fetchCount(condition(null, "teamC"))).isEqualTo(1);
+        assertParity();
+
+        transactionTemplate.execute(status -> {
+            em.remove(em.find(Member.class, memberId));
+            em.remove(em.find(Member.class, memberIds.get(0)));
+            return null;
+        });
+        assertThat(snapshot.fetchCount(condition("renamed", null))).isZero();
+        assertParity();
+    }
+
+    @Test
+    public void renamesCompactUsernameHeapTest() throws Exception {
+        // enough superseded usernames to outweigh the live ones several times over
+        for (int round = 0; round < 60; round++) {
+            String prefix = "round" + round + "-member";
+            transactionTemplate.execute(status -> {
+                for (int i = 0; i < memberIds.size(); i++) {
+                    em.find(Member.class, memberIds.get(i)).setUsername(prefix + i + "-padding-to-grow-the-heap");
+                }
+                return null;
+            });
+        }
+
+        assertThat(snapshot.fetchPage(condition("round59-member3-padding-to-grow-the-heap", null), 0, 10))
+                .extracting("memberId").containsExactly(memberIds.get(3));
+        assertParity();
+    }
+
+    @Test
+    public void bulkUpdateRebuildsInBackgroundTest() throws Exception {
+        MemberSearchCondition teamA = condition(null, "teamA");
+
+        memberRepository.bulkAddAge(teamA, 1, 2, null);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!snapshot.canServe(teamA) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(snapshot.canServe(teamA)).isTrue();
+        assertThat(snapshot.fetchPage(teamA, 0, 10)).extracting("age").containsExactlyInAnyOrder(1, 11, 21, 31);
+        assertParity();
+    }
+
+    @Test
+    public void rebuildReplaysConcurrentChangesTest() throws Exception {
+        Long renamedId = memberIds.get(1);
+        Long deletedId = memberIds.get(2);
+        Long[] insertedId = new Long[1];
+        // commits while the rebuild is streaming members, after its query has started
+        memberStreamHook.arm(() -> transactionTemplate.execute(status -> {
+            em.find(Member.class, renamedId).setUsername("renamedDuringRebuild");
+            em.remove(em.find(Member.class, deletedId));
+            Member inserted = new Member("insertedDuringRebuild", 55, em.find(Team.class, teamAId));
+            em.persist(inserted);
+            insertedId[0] = inserted.getId();
+            return null;
+        }));
+
+        snapshot.rebuild();
+
+        assertThat(memberStreamHook.fired()).isTrue();
+        assertThat(snapshot.fetchPage(condition("renamedDuringRebuild", null), 0, 10))
+                .extracting("memberId").containsExactly(renamedId);
+        assertThat(snapshot.fetchPage(condition("insertedDuringRebuild", "teamA"), 0, 10))
+                .extracting("memberId").containsExactly(insertedId[0]);
+        assertThat(snapshot.fetchCount(condition("member2", null))).isZero();
+        assertParity();
+    }
+
+    private void assertParity() {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        conditions.add(new MemberSearchCondition());
+        conditions.add(condition("member5", null));
+        conditions.add(condition(null, "teamA"));
+        conditions.add(condition(null, "teamB"));
+        conditions.add(condition(null, "teamX"));
+        conditions.add(condition("member5", "teamA"));
+        MemberSearchCondition ageRange = condition(null, "teamB");
+        ageRange.setAgeGoe(45);
+        ageRange.setAgeLoe(65);
+        conditions.add(ageRange);
+        MemberSearchCondition ageGoe = new MemberSearchCondition();
+        ageGoe.setAgeGoe(30);
+        conditions.add(ageGoe);
+
+        for (MemberSearchCondition condition : conditions) {
+            List<MemberTeamDto> expected = MemberSearchQueries.selectMemberTeam(queryFactory, condition).fetch();
+            assertThat(snapshot.fetchPage(condition, 0, Integer.MAX_VALUE)).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(snapshot.fetchCount(condition)).isEqualTo(expected.size());
+        }
+    }
+
+    private static MemberSearchCondition condition(String username, String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
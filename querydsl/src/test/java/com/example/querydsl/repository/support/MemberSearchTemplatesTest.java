@@ -0,0 +1,85 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSearchTemplatesTest {
+
+    @Autowired
+    private MemberSearchTemplates memberSearchTemplates;
+    @Autowired
+    private JPAQueryFactory queryFactory;
+    @Autowired
+    private EntityManager em;
+
+    @BeforeEach
+    public void beforeEach() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member2", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 25));
+        em.flush();
+        em.clear();
+    }
+
+    /**
+     * Every combination of the four filters (bit 0 username, 1 teamName, 2 ageGoe, 3 ageLoe)
+     * returns the same rows and total as the dynamic Querydsl query.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15})
+    public void shapeTest(int shape) throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((shape & 1) != 0) {
+            condition.setUsername("member2");
+        }
+        if ((shape & 2) != 0) {
+            condition.setTeamName("teamA");
+        }
+        if ((shape & 4) != 0) {
+            condition.setAgeGoe(15);
+        }
+        if ((shape & 8) != 0) {
+            condition.setAgeLoe(35);
+        }
+
+        List<MemberTeamDto> expected = MemberSearchQueries.selectMemberTeam(queryFactory, condition).fetch();
+        Long expectedCount = queryFactory
+                .select(member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MemberSearchQueries.searchCondition(condition))
+                .fetchOne();
+
+        assertThat(expected).isNotEmpty();
+        assertThat(memberSearchTemplates.fetchAll(condition)).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(memberSearchTemplates.fetchCount(condition)).isEqualTo(expectedCount);
+        assertThat(memberSearchTemplates.fetchPage(condition, 1, 2))
+                .hasSize((int) Math.max(0, Math.min(2, expectedCount - 1)))
+                .isSubsetOf(expected);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.querydsl.repository.support;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+
+import java.sql.SQLException;
+
+/**
+ * Runs an action once, on another thread, right after the arming thread executed a query on the member table,
+ * so a test can commit changes while a rebuild is streaming members.
+ */
+class MemberStreamHook extends SimpleJdbcEventListener {
+
+    private volatile Thread thread;
+    private volatile Runnable action;
+    private volatile boolean fired;
+
+    void arm(Runnable action) {
+        this.thread = Thread.currentThread();
+        this.fired = false;
+        this.action = action;
+    }
+
+    void disarm() {
+        action = null;
+    }
+
+    boolean fired() {
+        return fired;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        Runnable pending = action;
+        if (pending != null && Thread.currentThread() == thread && statementInformation.getSql().contains("from member")) {
+            action = null;
+            Thread other = new Thread(pending);
+            other.start();
+            try {
+                other.join();
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(interrupted);
+            }
+            fired = true;
+        }
+    }
+}
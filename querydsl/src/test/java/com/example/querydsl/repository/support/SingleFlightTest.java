@@ -0,0 +1,136 @@
+package com.example.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    public void afterEach() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallersShareOneLoadTest() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ZERO, 100, Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> leader = executor.submit(() -> singleFlight.execute("key", () -> blockingLoad(release, 1)));
+        awaitLoads(1);
+
+        List<Future<Integer>> waiters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            waiters.add(executor.submit(() -> singleFlight.execute("key", () -> blockingLoad(release, 2))));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        for (Future<Integer> waiter : waiters) {
+            assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        // nothing is reused once the call completed
+        assertThat(singleFlight.execute("key", () -> load(3))).isEqualTo(3);
+    }
+
+    @Test
+    public void waitersShareTheLoaderExceptionTest() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ZERO, 100, Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> singleFlight.execute("key", () -> {
+            blockingLoad(release, 1);
+            throw new IllegalStateException("load failed");
+        }));
+        awaitLoads(1);
+
+        Future<Integer> waiter = executor.submit(() -> singleFlight.execute("key", () -> load(2)));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void waiterGivesUpAfterWaitTimeoutTest() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ZERO, 100, Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> singleFlight.execute("key", () -> blockingLoad(release, 1)));
+        awaitLoads(1);
+
+        try {
+            assertThatThrownBy(() -> singleFlight.execute("key", () -> load(2)))
+                    .isInstanceOf(QueryTimeoutException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void completedResultIsReusedUntilInvalidatedTest() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ofMinutes(1), 100, Duration.ofSeconds(5));
+
+        assertThat(singleFlight.execute("key", () -> load(1))).isEqualTo(1);
+        assertThat(singleFlight.execute("key", () -> load(2))).isEqualTo(1);
+        singleFlight.invalidateAll();
+        assertThat(singleFlight.execute("key", () -> load(3))).isEqualTo(3);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void loadStartedBeforeInvalidationIsNeitherJoinedNorReusedTest() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(Duration.ofMinutes(1), 100, Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> stale = executor.submit(() -> singleFlight.execute("key", () -> blockingLoad(release, 1)));
+        awaitLoads(1);
+
+        singleFlight.invalidateAll();
+        assertThat(singleFlight.execute("key", () -> load(2))).isEqualTo(2);
+        release.countDown();
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+
+        assertThat(singleFlight.execute("key", () -> load(3))).isEqualTo(2);
+        singleFlight.invalidateAll();
+        assertThat(singleFlight.execute("key", () -> load(4))).isEqualTo(4);
+    }
+
+    private int load(int value) {
+        loads.incrementAndGet();
+        return value;
+    }
+
+    private int blockingLoad(CountDownLatch release, int value) {
+        loads.incrementAndGet();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    private void awaitLoads(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (loads.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(loads.get()).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.CommittingTestSupport;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberRepository;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Not @Transactional: the index only answers outside read-write transactions and follows post-commit events.
+ */
+@SpringBootTest(properties = {"member.username-index.enabled=true", "member.username-index.max-candidates=3"})
+class UsernameNgramIndexTest extends CommittingTestSupport {
+
+    @Autowired
+    private UsernameNgramIndex usernameIndex;
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private JPAQueryFactory queryFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    protected void persistMembers(Team teamA, Team teamB) {
+        em.persist(new Member("alpha1", 10, teamA));
+        em.persist(new Member("alpha2", 20, teamA));
+        em.persist(new Member("xalpha3", 30, teamA));
+        em.persist(new Member("omega1", 40, teamB));
+        em.persist(new Member("abcXbcd", 50, teamB));
+    }
+
+    @AfterEach
+    public void afterEach() {
+        // deletes through the bulk path, which tells the index
+        memberRepository.bulkDelete(new MemberSearchCondition(), 100, null);
+    }
+
+    @Test
+    public void indexedPatternTest() throws Exception {
+        assertIndexed(contains("lpha"), "alpha1", "alpha2", "xalpha3");
+        assertIndexed(prefix("alpha"), "alpha1", "alpha2");
+        assertIndexed(contains("mega1"), "omega1");
+        assertIndexed(contains("zzz"));
+    }
+
+    @Test
+    public void candidatesAreCheckedAgainstUsernameTest() throws Exception {
+        // abcXbcd holds both trigrams of "abcd" without containing it
+        assertIndexed(contains("abcd"));
+        // xalpha3 contains "alp" but does not start with it
+        assertIndexed(prefix("alp"), "alpha1", "alpha2");
+    }
+
+    @Test
+    public void combinedPatternsTest() throws Exception {
+        MemberSearchCondition condition = contains("pha");
+        condition.setUsernamePrefix("xal");
+
+        assertThat(search(condition)).containsExactly("xalpha3");
+    }
+
+    @Test
+    public void fallbackTest() throws Exception {
+        assertFallback(contains("al"), Ops.STRING_CONTAINS, "alpha1", "alpha2", "xalpha3");
+
+        transactionTemplate.execute(status -> {
+            em.persist(new Member("alpha4", 60));
+            return null;
+        });
+        // four candidates exceed max-candidates
+        assertFallback(contains("lpha"), Ops.STRING_CONTAINS, "alpha1", "alpha2", "xalpha3", "alpha4");
+
+        // a read-write transaction may see its own uncommitted members
+        transactionTemplate.execute(status -> {
+            em.persist(new Member("alpha5", 70));
+            em.flush();
+            assertThat(operator(prefix("alpha5"))).isEqualTo(Ops.STARTS_WITH);
+            assertThat(search(prefix("alpha5"))).containsExactly("alpha5");
+            status.setRollbackOnly();
+            return null;
+        });
+    }
+
+    @Test
+    public void memberEventsTest() throws Exception {
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member("delta1", 60);
+            em.persist(member);
+            return member.getId();
+        });
+        assertIndexed(contains("elta"), "delta1");
+
+        transactionTemplate.execute(status -> {
+            em.find(Member.class, memberId).setUsername("epsilon1");
+            return null;
+        });
+        assertIndexed(contains("elta"));
+        assertIndexed(prefix("epsil"), "epsilon1");
+
+        transactionTemplate.execute(status -> {
+            em.remove(em.find(Member.class, memberId));
+            return null;
+        });
+        assertIndexed(prefix("epsil"));
+    }
+
+    @Test
+    public void bulkDeleteTest() throws Exception {
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+
+        memberRepository.bulkDelete(teamA, 2, null);
+
+        assertIndexed(contains("lpha"));
+        assertIndexed(contains("mega"), "omega1");
+    }
+
+    @Test
+    public void buildTest() throws Exception {
+        // inserted behind Hibernate's back, so no change event reaches the index
+        jdbcTemplate.update("insert into member (id, username, age) values (?, ?, ?)", 900_000_001L, "zeta1", 80);
+        assertIndexed(contains("eta1"));
+
+        usernameIndex.build();
+
+        assertIndexed(contains("eta1"), "zeta1");
+        assertIndexed(contains("lpha"), "alpha1", "alpha2", "xalpha3");
+    }
+
+    private void assertIndexed(MemberSearchCondition condition, String... usernames) {
+        assertThat(operator(condition)).isNotIn(Ops.STRING_CONTAINS, Ops.STARTS_WITH);
+        assertThat(search(condition)).containsExactlyInAnyOrder(usernames);
+    }
+
+    private void assertFallback(MemberSearchCondition condition, Operator like, String... usernames) {
+        assertThat(operator(condition)).isEqualTo(like);
+        assertThat(search(condition)).containsExactlyInAnyOrder(usernames);
+    }
+
+    private Operator operator(MemberSearchCondition condition) {
+        Predicate predicate = usernameIndex.filter(condition).getValue();
+        while (predicate instanceof BooleanBuilder) {
+            predicate = ((BooleanBuilder) predicate).getValue();
+        }
+        return ((Operation<?>) predicate).getOperator();
+    }
+
+    private List<String> search(MemberSearchCondition condition) {
+        return queryFactory
+                .select(member.username)
+                .from(member)
+                .where(usernameIndex.filter(condition))
+                .fetch();
+    }
+
+    private static MemberSearchCondition contains(String pattern) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains(pattern);
+        return condition;
+    }
+
+    private static MemberSearchCondition prefix(String pattern) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix(pattern);
+        return condition;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.querydsl.seed;
+
+import com.example.querydsl.entity.Member;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Not @Transactional: the seeder commits over its own JDBC connections.
+ */
+@SpringBootTest
+class MemberSeederTest {
+
+    @Autowired
+    private MemberSeeder memberSeeder;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManager em;
+
+    @AfterEach
+    public void afterEach() {
+        transactionTemplate.execute(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            return null;
+        });
+    }
+
+    @Test
+    public void seededAndPersistedIdsShareOneSequenceTest() throws Exception {
+        memberSeeder.seed(120, 2);
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        transactionTemplate.execute(status -> {
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("persisted" + i, i));
+            }
+            return null;
+        });
+
+        // a couple of id block reservations and one batched insert, instead of a sequence call per row
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(10);
+        List<Long> ids = em.createQuery("select m.id from Member m", Long.class).getResultList();
+        assertThat(ids).hasSize(220).doesNotHaveDuplicates();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.querydsl.service;
+
+import com.example.querydsl.dto.MemberImportResult;
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.support.MemberSearchQueries;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.StringReader;
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Not @Transactional: the import commits batch by batch. A batch size of 2 makes a few lines span batches.
+ */
+@SpringBootTest(properties = "member.import.batch-size=2")
+@AutoConfigureMockMvc
+class MemberImportServiceTest {
+
+    @Autowired
+    private MemberImportService memberImportService;
+    @Autowired
+    private JPAQueryFactory queryFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    public void afterEach() {
+        transactionTemplate.execute(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            return null;
+        });
+    }
+
+    @Test
+    public void importCsvTest() throws Exception {
+        transactionTemplate.execute(status -> {
+            em.persist(new Team("teamA"));
+            return null;
+        });
+        String csv = "username,age,teamName\n"
+                + "member1,10,teamA\n"
+                + "\n"
+                + "\"member, \"\"2\"\"\",20,teamB\n"
+                + "member3,30\n"
+                + "member4,40,teamB\n"
+                + "member5,50,teamC\n";
+
+        MemberImportResult result = memberImportService.importCsv(new StringReader(csv));
+
+        assertThat(result.getMembers()).isEqualTo(5);
+        assertThat(result.getTeamsCreated()).isEqualTo(2);
+        assertThat(result.getError()).isNull();
+        assertThat(importedMembers()).extracting(dto -> dto.getUsername() + "/" + dto.getAge() + "/" + dto.getTeamName())
+                .containsExactly("member1/10/teamA", "member, \"2\"/20/teamB", "member3/30/null",
+                        "member4/40/teamB", "member5/50/teamC");
+    }
+
+    @Test
+    public void importNdjsonTest() throws Exception {
+        String ndjson = "{\"username\":\"member1\",\"age\":10,\"teamName\":\"teamA\"}\n"
+                + "{\"username\":\"member2\",\"age\":20}\n"
+                + "{\"username\":\"member3\",\"age\":30,\"teamName\":\"teamA\"}\n";
+
+        MemberImportResult result = memberImportService.importNdjson(new StringReader(ndjson));
+
+        assertThat(result.getMembers()).isEqualTo(3);
+        assertThat(result.getTeamsCreated()).isEqualTo(1);
+        assertThat(importedMembers()).extracting(MemberTeamDto::getTeamName)
+                .containsExactly("teamA", null, "teamA");
+    }
+
+    @Test
+    public void malformedLineKeepsCommittedBatchesTest() throws Exception {
+        String csv = "member1,10\n"
+                + "member2,20\n"
+                + "member3,30\n"
+                + "member4,40\n"
+                + "member5,50\n"
+                + "member6,not a number\n";
+
+        MemberImportException e = catchThrowableOfType(
+                () -> memberImportService.importCsv(new StringReader(csv)), MemberImportException.class);
+
+        assertThat(e.getMessage()).contains("line 6");
+        assertThat(e.getCommitted().getMembers()).isEqualTo(4);
+        assertThat(e.getCommitted().getError()).isEqualTo(e.getMessage());
+        // member5 was still waiting for its batch
+        assertThat(importedMembers()).extracting(MemberTeamDto::getUsername)
+                .containsExactly("member1", "member2", "member3", "member4");
+    }
+
+    @Test
+    public void malformedLineAnswersCommittedCountsTest() throws Exception {
+        mockMvc.perform(post("/members/import")
+                .contentType("application/x-ndjson")
+                .content("{\"username\":\"member1\",\"age\":10}\n{\"username\":\"member2\",\"age\":20}\n[1, 2]\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.members").value(2))
+                .andExpect(jsonPath("$.error").value(containsString("line 3")));
+    }
+
+    @Test
+    public void ndjsonWithoutIntegerAgeIsMalformedTest() throws Exception {
+        String[] lines = {
+                "{\"username\":\"member2\"}",
+                "{\"username\":\"member2\",\"age\":null}",
+                "{\"username\":\"member2\",\"age\":\"20\"}",
+                "{\"username\":\"member2\",\"age\":20.5}"
+        };
+        for (String line : lines) {
+            String ndjson = "{\"username\":\"member1\",\"age\":10}\n" + line + "\n";
+
+            MemberImportException e = catchThrowableOfType(
+                    () -> memberImportService.importNdjson(new StringReader(ndjson)), MemberImportException.class);
+
+            assertThat(e.getMessage()).contains("line 2", "integer age");
+        }
+        assertThat(importedMembers()).isEmpty();
+    }
+
+    private List<MemberTeamDto> importedMembers() {
+        return MemberSearchQueries.selectMemberTeam(queryFactory, new MemberSearchCondition())
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+}
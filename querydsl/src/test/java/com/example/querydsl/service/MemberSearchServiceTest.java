@@ -0,0 +1,99 @@
+package com.example.querydsl.service;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class MemberSearchServiceTest {
+
+    private final MemberRepository memberRepository = mock(MemberRepository.class);
+    private final MemberSearchService memberSearchService =
+            new MemberSearchService(memberRepository, Duration.ofMinutes(1), 100, Duration.ofSeconds(5));
+    private final PageRequest pageable = PageRequest.of(0, 10);
+
+    @Test
+    public void equivalentSearchesShareResultsUntilChangeTest() throws Exception {
+        given(memberRepository.searchPageSimple(any(), any())).willAnswer(invocation -> page());
+        MemberSearchCondition blankUsername = new MemberSearchCondition();
+        blankUsername.setUsername(" ");
+
+        Page<MemberTeamDto> first = memberSearchService.searchPageSimple(new MemberSearchCondition(), pageable);
+        Page<MemberTeamDto> second = memberSearchService.searchPageSimple(blankUsername, pageable);
+        memberSearchService.onEntityChange(null);
+        Page<MemberTeamDto> third = memberSearchService.searchPageSimple(new MemberSearchCondition(), pageable);
+
+        assertThat(second).isSameAs(first);
+        assertThat(third).isNotSameAs(first);
+        verify(memberRepository, times(2)).searchPageSimple(any(), any());
+    }
+
+    @Test
+    public void searchMethodAndPageAreSeparateKeysTest() throws Exception {
+        given(memberRepository.searchPageSimple(any(), any())).willAnswer(invocation -> page());
+        given(memberRepository.searchPageComplex(any(), any())).willAnswer(invocation -> page());
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        memberSearchService.searchPageSimple(condition, pageable);
+        memberSearchService.searchPageSimple(condition, PageRequest.of(1, 10));
+        memberSearchService.searchPageComplex(condition, pageable);
+
+        verify(memberRepository, times(2)).searchPageSimple(any(), any());
+        verify(memberRepository, times(1)).searchPageComplex(any(), any());
+    }
+
+    @Test
+    public void slicesAreCoalescedApartFromPagesTest() throws Exception {
+        given(memberRepository.searchSlice(any(), any()))
+                .willAnswer(invocation -> new SliceImpl<>(Collections.emptyList(), pageable, false));
+        given(memberRepository.searchPageSimple(any(), any())).willAnswer(invocation -> page());
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Slice<MemberTeamDto> first = memberSearchService.searchSlice(condition, pageable);
+        Slice<MemberTeamDto> second = memberSearchService.searchSlice(condition, pageable);
+        memberSearchService.searchPageSimple(condition, pageable);
+        memberSearchService.onMembersBulkChanged(null);
+        Slice<MemberTeamDto> third = memberSearchService.searchSlice(condition, pageable);
+
+        assertThat(second).isSameAs(first);
+        assertThat(third).isNotSameAs(first);
+        verify(memberRepository, times(2)).searchSlice(any(), any());
+        verify(memberRepository, times(1)).searchPageSimple(any(), any());
+    }
+
+    @Test
+    public void readWriteTransactionIsNotCoalescedTest() throws Exception {
+        given(memberRepository.searchPageSimple(any(), any())).willAnswer(invocation -> page());
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            memberSearchService.searchPageSimple(condition, pageable);
+            memberSearchService.searchPageSimple(condition, pageable);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        verify(memberRepository, times(2)).searchPageSimple(any(), any());
+    }
+
+    private Page<MemberTeamDto> page() {
+        return new PageImpl<>(Collections.emptyList(), pageable, 0);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.querydsl.stats;
+
+import com.example.querydsl.CommittingTestSupport;
+import com.example.querydsl.dto.TeamStats;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Not @Transactional: the rollup follows post-commit events, so the test's transactions must commit.
+ */
+@SpringBootTest
+class TeamStatsRollupTest extends CommittingTestSupport {
+
+    @Autowired
+    private TeamStatsRollup teamStatsRollup;
+
+    @Override
+    protected void persistMembers(Team teamA, Team teamB) {
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+        em.persist(new Member("member4", 40, teamB));
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        // other test classes clean up with bulk deletes, which the shared rollup never hears about
+        teamStatsRollup.reconcile();
+    }
+
+    @Test
+    public void reconcileTest() throws Exception {
+        assertStats(teamAId, "teamA", 3, 60, 10, 30);
+        assertStats(teamBId, "teamB", 1, 40, 40, 40);
+    }
+
+    @Test
+    public void insertTest() throws Exception {
+        transactionTemplate.execute(status -> {
+            em.persist(new Member("member5", 50, em.find(Team.class, teamAId)));
+            em.persist(new Member("member6", 60));
+            return null;
+        });
+
+        assertThat(statementsFor(() -> assertStats(teamAId, "teamA", 4, 110, 10, 50))).isZero();
+    }
+
+    @Test
+    public void updateTest() throws Exception {
+        Long memberId = memberId("member2");
+
+        transactionTemplate.execute(status -> {
+            em.find(Member.class, memberId).setAge(25);
+            return null;
+        });
+        assertThat(statementsFor(() -> assertStats(teamAId, "teamA", 3, 65, 10, 30))).isZero();
+
+        transactionTemplate.execute(status -> {
+            em.find(Member.class, memberId).changeTeam(em.find(Team.class, teamBId));
+            return null;
+        });
+        assertThat(statementsFor(() -> {
+            assertStats(teamAId, "teamA", 2, 40, 10, 30);
+            assertStats(teamBId, "teamB", 2, 65, 25, 40);
+        })).isZero();
+
+        transactionTemplate.execute(status -> {
+            em.find(Team.class, teamBId).setName("teamZ");
+            return null;
+        });
+        assertStats(teamBId, "teamZ", 2, 65, 25, 40);
+    }
+
+    @Test
+    public void deleteTest() throws Exception {
+        Long memberId = memberId("member2");
+
+        transactionTemplate.execute(status -> {
+            em.remove(em.find(Member.class, memberId));
+            return null;
+        });
+
+        assertThat(statementsFor(() -> assertStats(teamAId, "teamA", 2, 40, 10, 30))).isZero();
+    }
+
+    @Test
+    public void removedExtremaAreReaggregatedOnRead() throws Exception {
+        Long maxId = memberId("member3");
+        Long minId = memberId("member1");
+
+        transactionTemplate.execute(status -> {
+            em.remove(em.find(Member.class, maxId));
+            em.find(Member.class, minId).setAge(15);
+            return null;
+        });
+
+        assertThat(statementsFor(() -> assertStats(teamAId, "teamA", 2, 35, 15, 20))).isPositive();
+        // refreshed once; later reads are served from memory again
+        assertThat(statementsFor(() -> assertStats(teamAId, "teamA", 2, 35, 15, 20))).isZero();
+    }
+
+    @Test
+    public void lastMemberRemovalEmptiesTeam() throws Exception {
+        Long memberId = memberId("member4");
+
+        transactionTemplate.execute(status -> {
+            em.remove(em.find(Member.class, memberId));
+            return null;
+        });
+
+        TeamStats stats = statsOf(teamBId);
+        assertThat(stats.getMemberCount()).isZero();
+        assertThat(stats.getAgeMin()).isNull();
+        assertThat(stats.getAgeMax()).isNull();
+        assertThat(stats.getAgeAvg()).isNull();
+    }
+
+    private void assertStats(Long teamId, String name, long count, long ageSum, int ageMin, int ageMax) {
+        TeamStats stats = statsOf(teamId);
+        assertThat(stats.getTeamName()).isEqualTo(name);
+        assertThat(stats.getMemberCount()).isEqualTo(count);
+        assertThat(stats.getAgeSum()).isEqualTo(ageSum);
+        assertThat(stats.getAgeMin()).isEqualTo(ageMin);
+        assertThat(stats.getAgeMax()).isEqualTo(ageMax);
+    }
+
+    private TeamStats statsOf(Long teamId) {
+        return teamStatsRollup.snapshot().stream()
+                .filter(stats -> stats.getTeamId().equals(teamId))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+
+    private Long memberId(String username) {
+        return em.createQuery("select m.id from Member m where m.username = :username", Long.class)
+                .setParameter("username", username)
+                .getSingleResult();
+    }
+}
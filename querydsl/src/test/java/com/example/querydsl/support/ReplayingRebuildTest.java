@@ -0,0 +1,70 @@
+package com.example.querydsl.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplayingRebuildTest {
+
+    @Test
+    public void changesDuringLoadAreReplayedTest() throws Exception {
+        ReplayingRebuild<List<String>> rebuild = new ReplayingRebuild<>(new ArrayList<>(Arrays.asList("old")));
+
+        List<String> swapped = rebuild.rebuild(() -> {
+            // committed while the load runs, after the queue opened
+            rebuild.apply(list -> list.add("during"));
+            return new ArrayList<>(Arrays.asList("loaded"));
+        });
+
+        assertThat(swapped).containsExactly("loaded", "during");
+        assertThat(rebuild.current()).isSameAs(swapped);
+        rebuild.apply(list -> list.add("after"));
+        assertThat(rebuild.read(ArrayList::new)).containsExactly("loaded", "during", "after");
+    }
+
+    @Test
+    public void swapCanMergeIntoCurrentTest() throws Exception {
+        List<String> current = new ArrayList<>(Arrays.asList("kept"));
+        ReplayingRebuild<List<String>> rebuild = new ReplayingRebuild<>(current);
+
+        rebuild.rebuild(() -> new ArrayList<>(Arrays.asList("refreshed")), (replaced, fresh) -> {
+            replaced.addAll(fresh);
+            return replaced;
+        });
+
+        assertThat(rebuild.current()).isSameAs(current).containsExactly("kept", "refreshed");
+    }
+
+    @Test
+    public void changesBeforeFirstBuildOnlyReachTheBuildTest() throws Exception {
+        ReplayingRebuild<List<String>> rebuild = new ReplayingRebuild<>(null);
+        rebuild.apply(list -> list.add("ignored"));
+
+        rebuild.rebuild(() -> {
+            rebuild.apply(list -> list.add("during"));
+            return new ArrayList<>();
+        });
+
+        assertThat(rebuild.current()).containsExactly("during");
+    }
+
+    @Test
+    public void failedLoadKeepsCurrentAndStopsQueueingTest() throws Exception {
+        List<String> current = new ArrayList<>();
+        ReplayingRebuild<List<String>> rebuild = new ReplayingRebuild<>(current);
+
+        assertThatThrownBy(() -> rebuild.rebuild(() -> {
+            throw new IllegalStateException("load failed");
+        })).hasMessage("load failed");
+        rebuild.apply(list -> list.add("after"));
+
+        assertThat(rebuild.current()).isSameAs(current).containsExactly("after");
+        // a new rebuild can start, so the failed one released its queue
+        assertThat(rebuild.rebuild(ArrayList::new)).isEmpty();
+    }
+}